@@ -3,12 +3,16 @@ package dev.sanda.datafi;
 import com.google.common.collect.Sets;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import dev.sanda.datafi.annotations.EntityApiSpec;
+import dev.sanda.datafi.code_generator.AnnotationProcessor;
 import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
 import dev.sanda.datafi.persistence.Archivable;
 import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
+import dev.sanda.datafi.reflection.cached_type_info.ResolvedEntityPath;
 import dev.sanda.datafi.reflection.runtime_services.ReflectionCache;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
@@ -21,6 +25,7 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.element.*;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.persistence.*;
 import javax.tools.Diagnostic;
@@ -32,10 +37,17 @@ import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.proxy.LazyInitializer;
 import org.springframework.aop.framework.Advised;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 
 public class DatafiStaticUtils {
 
+  /**
+   * The name suffix of the slice returning variants of generated page queries,
+   * which read the chunks of fetchAll pages without counting them anew.
+   */
+  public static final String SLICE_VARIANT_SUFFIX = "Slice";
+
   public static String toPascalCase(String string) {
     return string.substring(0, 1).toUpperCase() + string.substring(1);
   }
@@ -84,7 +96,11 @@ public class DatafiStaticUtils {
     final JavaFile javaFile = JavaFile.builder(packageName, newClass).build();
 
     try {
-      javaFile.writeTo(System.out);
+      if (
+        AnnotationProcessor.isPrintGeneratedSources(processingEnvironment)
+      ) processingEnvironment
+        .getMessager()
+        .printMessage(Diagnostic.Kind.NOTE, javaFile.toString());
       javaFile.writeTo(processingEnvironment.getFiler());
     } catch (IOException e) {
       e.printStackTrace();
@@ -100,6 +116,46 @@ public class DatafiStaticUtils {
       .collect(Collectors.toList());
   }
 
+  /**
+   * @return the field of the given name declared by the given type or any of
+   * its superclasses, if any.
+   */
+  public static VariableElement findField(TypeElement type, String name) {
+    TypeElement current = type;
+    while (current != null) {
+      for (VariableElement field : getFieldsOf(current)) {
+        if (simpleNameOf(field).equals(name)) return field;
+      }
+      current = superclassOf(current);
+    }
+    return null;
+  }
+
+  public static TypeElement superclassOf(TypeElement type) {
+    val superclass = type.getSuperclass();
+    return superclass.getKind() == TypeKind.DECLARED
+      ? (TypeElement) ((DeclaredType) superclass).asElement()
+      : null;
+  }
+
+  /**
+   * @return a variant of the given page returning query method, returning a
+   * slice - and hence skipping the count query - instead.
+   */
+  public static MethodSpec sliceVariantOf(MethodSpec pageMethod) {
+    val resultType = ((ParameterizedTypeName) pageMethod.returnType)
+      .typeArguments.get(0);
+    return MethodSpec
+      .methodBuilder(pageMethod.name + SLICE_VARIANT_SUFFIX)
+      .addModifiers(pageMethod.modifiers)
+      .addAnnotations(pageMethod.annotations)
+      .addParameters(pageMethod.parameters)
+      .returns(
+        ParameterizedTypeName.get(ClassName.get(Slice.class), resultType)
+      )
+      .build();
+  }
+
   public static List<ExecutableElement> getGettersOf(TypeElement entity) {
     if (entity == null) return new ArrayList<>();
     return entity
@@ -134,47 +190,89 @@ public class DatafiStaticUtils {
     throw new RuntimeException("Cannot find " + simpleName + " by id: " + id);
   }
 
-  @SuppressWarnings("unchecked")
+  /**
+   * @return the distinct ids of the given entities, in encounter order.
+   * Uninitialized proxies are not initialized in the process.
+   */
   public static <T> List<Object> getIdList(
     Collection<T> input,
     ReflectionCache reflectionCache
   ) {
     if (input.isEmpty()) return new ArrayList<>();
-    Collection<T> deproxifiedInput = (Collection<T>) input
-      .stream()
-      .map(DatafiStaticUtils::deProxify)
-      .collect(Collectors.toSet());
-    T firstItem = deproxifiedInput.iterator().next();
-    final String clazzName = firstItem.getClass().getSimpleName();
-    final CachedEntityTypeInfo cachedEntityTypeInfo = reflectionCache
-      .getEntitiesCache()
-      .get(clazzName);
-    List<Object> ids = new ArrayList<>();
-    deproxifiedInput.forEach(item -> ids.add(cachedEntityTypeInfo.getId(item)));
-    return ids;
+    final Set<Object> ids = new LinkedHashSet<>();
+    CachedEntityTypeInfo cachedEntityTypeInfo = null;
+    for (T item : input) {
+      if (item instanceof HibernateProxy) {
+        ids.add(
+          ((HibernateProxy) item).getHibernateLazyInitializer().getIdentifier()
+        );
+        continue;
+      }
+      if (
+        cachedEntityTypeInfo == null ||
+        !cachedEntityTypeInfo.getClazz().equals(item.getClass())
+      ) cachedEntityTypeInfo =
+        reflectionCache.getEntitiesCache().get(item.getClass().getSimpleName());
+      ids.add(cachedEntityTypeInfo.getId(item));
+    }
+    return new ArrayList<>(ids);
   }
 
   public static <T> PageRequest generatePageRequest(
     dev.sanda.datafi.dto.PageRequest request,
     long totalCount
+  ) {
+    return generatePageRequest(request, totalCount, request.getSortBy());
+  }
+
+  /**
+   * Same as {@link #generatePageRequest(dev.sanda.datafi.dto.PageRequest, long)},
+   * only sorting by the given (nullable) property rather than by the request's
+   * sortBy - e.g. by its column, given a native query.
+   */
+  public static PageRequest generatePageRequest(
+    dev.sanda.datafi.dto.PageRequest request,
+    long totalCount,
+    String sortBy
   ) {
     int pageNumber, pageSize;
     if (request.getFetchAll()) {
       pageNumber = 0;
-      pageSize = (int) totalCount;
+      //page sizes must be positive, and counts may exceed the int range
+      pageSize = (int) Math.min(Math.max(totalCount, 1), Integer.MAX_VALUE);
     } else if (!request.isValidPagingRange()) {
       throw new IllegalArgumentException("Invalid paging range");
     } else {
       pageNumber = request.getPageNumber();
       pageSize = request.getPageSize();
     }
-    if (request.getSortBy() != null) {
-      return PageRequest.of(
-        pageNumber,
-        pageSize,
-        Sort.by(request.getSortDirection(), request.getSortBy())
-      );
-    } else return PageRequest.of(pageNumber, pageSize);
+    return PageRequest.of(pageNumber, pageSize, sortOf(request, sortBy));
+  }
+
+  /**
+   * @return the request for the first chunk of a fetchAll request, the rest
+   * of which are read lazily - see {@link dev.sanda.datafi.dto.ChunkedList}.
+   * The given tie breaker (if any) is appended to the requested sort order,
+   * such that chunks don't overlap even when sorting by a non unique field.
+   */
+  public static PageRequest generateFirstChunkRequest(
+    dev.sanda.datafi.dto.PageRequest request,
+    int chunkSize,
+    String sortBy,
+    String tieBreaker
+  ) {
+    Sort sort = sortOf(request, sortBy);
+    if (tieBreaker != null) sort = sort.and(Sort.by(tieBreaker));
+    return PageRequest.of(0, chunkSize, sort);
+  }
+
+  private static Sort sortOf(
+    dev.sanda.datafi.dto.PageRequest request,
+    String sortBy
+  ) {
+    return sortBy != null
+      ? Sort.by(request.getSortDirection(), sortBy)
+      : Sort.unsorted();
   }
 
   public static void validateSortByIfNonNull(
@@ -187,7 +285,7 @@ public class DatafiStaticUtils {
       .getEntitiesCache()
       .get(clazz.getSimpleName());
     if (
-      !entityTypeInfo.getSortKeys().contains(sortByFieldName)
+      !entityTypeInfo.isSortKey(sortByFieldName)
     ) throw new IllegalArgumentException(
       "Cannot sort by " +
       sortByFieldName +
@@ -196,6 +294,29 @@ public class DatafiStaticUtils {
     );
   }
 
+  /**
+   * @return the resolved (dotted) attribute path of the given entity type
+   */
+  public static ResolvedEntityPath resolvePath(
+    Class<?> clazz,
+    String dottedPath,
+    ReflectionCache reflectionCache
+  ) {
+    CachedEntityTypeInfo entityTypeInfo = reflectionCache
+      .getEntitiesCache()
+      .get(clazz.getSimpleName());
+    final ResolvedEntityPath resolvedPath = entityTypeInfo.resolvePath(
+      dottedPath
+    );
+    if (resolvedPath == null) throw new IllegalArgumentException(
+      "Cannot resolve " +
+      dottedPath +
+      " as there is no such field in " +
+      clazz.getName()
+    );
+    return resolvedPath;
+  }
+
   public static String firstLowerCaseLetterOf(String str) {
     return str.substring(0, 1).toLowerCase();
   }
@@ -204,15 +325,41 @@ public class DatafiStaticUtils {
     TypeElement entity,
     ProcessingEnvironment processingEnv
   ) {
-    for (Element field : entity.getEnclosedElements()) {
-      if (
-        field.getKind() == ElementKind.FIELD &&
-        (
-          field.getAnnotation(Id.class) != null ||
-          field.getAnnotation(EmbeddedId.class) != null
-        )
-      ) {
-        return (ClassName) ClassName.get(field.asType());
+    //the id field may be declared (generically) within a @MappedSuperclass, and may be of a primitive type
+    val entityType = (DeclaredType) entity.asType();
+    for (
+      TypeElement current = entity;
+      current != null;
+      current = mappedSuperclassOf(current)
+    ) {
+      for (Element field : current.getEnclosedElements()) {
+        if (
+          field.getKind() == ElementKind.FIELD &&
+          (
+            field.getAnnotation(Id.class) != null ||
+            field.getAnnotation(EmbeddedId.class) != null
+          )
+        ) {
+          val idType = TypeName
+            .get(processingEnv.getTypeUtils().asMemberOf(entityType, field))
+            .box();
+          if (idType instanceof ClassName) return (ClassName) idType;
+          //i.e. the raw type of a parameterized id type
+          if (
+            idType instanceof ParameterizedTypeName
+          ) return ((ParameterizedTypeName) idType).rawType;
+          processingEnv
+            .getMessager()
+            .printMessage(
+              Diagnostic.Kind.ERROR,
+              "Cannot resolve the id type " +
+              idType +
+              " of entity " +
+              entity.getSimpleName().toString(),
+              entity
+            );
+          return null;
+        }
       }
     }
     VariableElement idField;
@@ -229,6 +376,16 @@ public class DatafiStaticUtils {
     return null;
   }
 
+  private static TypeElement mappedSuperclassOf(TypeElement type) {
+    if (!(type.getSuperclass() instanceof DeclaredType)) return null;
+    val superClass = (TypeElement) (
+      (DeclaredType) type.getSuperclass()
+    ).asElement();
+    return superClass.getAnnotation(MappedSuperclass.class) != null
+      ? superClass
+      : null;
+  }
+
   private static VariableElement getPrimaryKeyJoinColumn(TypeElement entity) {
     val superClass = (TypeElement) (
       (DeclaredType) entity.getSuperclass()
@@ -645,4 +802,81 @@ public class DatafiStaticUtils {
     }
     return new ArrayList<>(prefixes);
   }
+
+  /**
+   * Resolves the (optionally schema qualified) table name of the given entity
+   * the same way as spring boot's default physical naming strategy does,
+   * unless explicitly specified via @Table / @Entity.
+   */
+  public static String tableNameOf(TypeElement entity) {
+    val schema = schemaNameOf(entity);
+    val table = unqualifiedTableNameOf(entity);
+    return schema.isEmpty() ? table : schema + "." + table;
+  }
+
+  public static String unqualifiedTableNameOf(TypeElement entity) {
+    val table = entity.getAnnotation(Table.class);
+    if (table != null && !table.name().isEmpty()) return table.name();
+    val jpaEntity = entity.getAnnotation(Entity.class);
+    if (
+      jpaEntity != null && !jpaEntity.name().isEmpty()
+    ) return toSnakeCase(jpaEntity.name());
+    return toSnakeCase(simpleNameOf(entity));
+  }
+
+  public static String schemaNameOf(TypeElement entity) {
+    val table = entity.getAnnotation(Table.class);
+    return table != null ? table.schema() : "";
+  }
+
+  public static String columnNameOf(VariableElement field) {
+    return columnNameOf(
+      field.getAnnotation(Column.class),
+      field.getAnnotation(JoinColumn.class),
+      field.getAnnotation(ManyToOne.class) != null ||
+      field.getAnnotation(OneToOne.class) != null,
+      simpleNameOf(field)
+    );
+  }
+
+  /**
+   * Same as {@link #columnNameOf(VariableElement)}, only at runtime.
+   */
+  public static String columnNameOf(Field field) {
+    return columnNameOf(
+      field.getAnnotation(Column.class),
+      field.getAnnotation(JoinColumn.class),
+      field.isAnnotationPresent(ManyToOne.class) ||
+      field.isAnnotationPresent(OneToOne.class),
+      field.getName()
+    );
+  }
+
+  private static String columnNameOf(
+    Column column,
+    JoinColumn joinColumn,
+    boolean isToOne,
+    String fieldName
+  ) {
+    if (column != null && !column.name().isEmpty()) return column.name();
+    if (
+      joinColumn != null && !joinColumn.name().isEmpty()
+    ) return joinColumn.name();
+    //i.e. a foreign key referencing the id of the associated entity
+    if (isToOne) return toSnakeCase(fieldName) + "_id";
+    return toSnakeCase(fieldName);
+  }
+
+  //same as spring boot's SpringPhysicalNamingStrategy
+  public static String toSnakeCase(String name) {
+    val builder = new StringBuilder(name.replace('.', '_'));
+    for (int i = 1; i < builder.length() - 1; i++) {
+      if (
+        Character.isLowerCase(builder.charAt(i - 1)) &&
+        Character.isUpperCase(builder.charAt(i)) &&
+        Character.isLowerCase(builder.charAt(i + 1))
+      ) builder.insert(i++, '_');
+    }
+    return builder.toString().toLowerCase(Locale.ROOT);
+  }
 }
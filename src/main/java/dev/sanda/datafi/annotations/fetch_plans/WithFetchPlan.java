@@ -0,0 +1,18 @@
+package dev.sanda.datafi.annotations.fetch_plans;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares a named fetch plan for the annotated entity (or its @EntityApiSpec).
+ * The given attribute paths - which may be dotted, e.g. "author.address" - are
+ * applied as a JPA entity graph when passing the plan name to the respective
+ * DataManager read methods.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(WithFetchPlanAccumulator.class)
+public @interface WithFetchPlan {
+  String name();
+
+  String[] paths();
+}
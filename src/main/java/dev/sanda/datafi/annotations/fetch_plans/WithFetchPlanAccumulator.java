@@ -0,0 +1,12 @@
+package dev.sanda.datafi.annotations.fetch_plans;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WithFetchPlanAccumulator {
+  WithFetchPlan[] value();
+}
@@ -0,0 +1,31 @@
+package dev.sanda.datafi.annotations.free_text_search;
+
+/**
+ * Determines how the generated free text search queries are expressed.
+ * Apart from PORTABLE, each dialect generates native queries which make use of
+ * a full text index, the DDL for which is generated into
+ * "META-INF/datafi/free-text-search-indexes.sql".
+ */
+public enum FreeTextSearchDialect {
+  /**
+   * Portable JPQL "LIKE '%term%'" predicates, which can't make use of an index.
+   */
+  PORTABLE,
+  /**
+   * PostgreSQL tsvector matching (whole words), backed by a GIN index.
+   */
+  POSTGRESQL,
+  /**
+   * PostgreSQL "LIKE '%term%'" predicates (substrings), backed by pg_trgm
+   * GIN indexes.
+   */
+  POSTGRESQL_TRIGRAM,
+  /**
+   * MySQL "MATCH ... AGAINST", backed by a FULLTEXT index.
+   */
+  MYSQL,
+  /**
+   * H2's native full text search, mainly so as to be testable locally.
+   */
+  H2,
+}
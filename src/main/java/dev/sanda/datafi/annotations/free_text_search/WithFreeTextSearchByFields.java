@@ -9,4 +9,6 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface WithFreeTextSearchByFields {
   String[] value();
+
+  FreeTextSearchDialect dialect() default FreeTextSearchDialect.PORTABLE;
 }
@@ -0,0 +1,15 @@
+package dev.sanda.datafi.annotations.projections;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks the interfaces generated for @WithProjection declarations, such that
+ * the "...As[name]" methods of a projection can be resolved from its type.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface GeneratedProjection {
+  Class<?> entity();
+
+  String name();
+}
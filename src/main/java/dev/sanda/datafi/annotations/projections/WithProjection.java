@@ -0,0 +1,18 @@
+package dev.sanda.datafi.annotations.projections;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares a named column projection for the annotated entity (or its @EntityApiSpec).
+ * An interface named after the entity and the projection (e.g. "PersonSummary") is
+ * generated with a getter for each of the given fields, alongside "...As[name]" variants
+ * of the entity's generated finders and free text search which select only those columns.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(WithProjectionAccumulator.class)
+public @interface WithProjection {
+  String name();
+
+  String[] fields();
+}
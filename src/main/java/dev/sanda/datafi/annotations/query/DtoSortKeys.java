@@ -0,0 +1,24 @@
+package dev.sanda.datafi.annotations.query;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generated onto page queries which select a DTO ("SELECT NEW ..."), mapping
+ * the DTO's constructor parameters onto the paths they're selected from, such
+ * that pages of DTOs are sorted by their own properties. Parameters selected
+ * from anything other than a path aren't sortable.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DtoSortKeys {
+  String[] properties();
+
+  /**
+   * The paths the properties are selected from, in the same order, relative
+   * to the query's root entity.
+   */
+  String[] paths();
+}
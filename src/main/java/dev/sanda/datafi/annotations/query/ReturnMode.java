@@ -0,0 +1,25 @@
+package dev.sanda.datafi.annotations.query;
+
+/**
+ * Determines the return type of a generated custom query method.
+ */
+public enum ReturnMode {
+  /**
+   * A single result if the query ends with "LIMIT 1" (or is an INSERT /
+   * REPLACE statement), the number of affected rows for UPDATE / DELETE
+   * statements, and a list otherwise.
+   */
+  AUTO,
+  SINGLE,
+  LIST,
+  /**
+   * A page of results, given a Pageable as an additional final argument.
+   * The count query is derived from the query unless explicitly specified.
+   */
+  PAGE,
+  /**
+   * A forward only stream of results, which must be consumed within a
+   * transaction and closed afterwards.
+   */
+  STREAM,
+}
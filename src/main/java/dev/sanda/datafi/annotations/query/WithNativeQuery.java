@@ -9,4 +9,19 @@ public @interface WithNativeQuery {
   String name();
 
   String sql();
+
+  ReturnMode returns() default ReturnMode.AUTO;
+
+  /**
+   * The count query of a {@link ReturnMode#PAGE} query, derived from the
+   * query itself if left blank.
+   */
+  String countQuery() default "";
+
+  /**
+   * A DTO to map each row onto, in column order, via its public constructor
+   * with the most parameters. Such queries are run through JDBC rather than
+   * JPA, and return either a single DTO or a list of them.
+   */
+  Class<?> mapTo() default void.class;
 }
@@ -9,4 +9,12 @@ public @interface WithQuery {
   String name();
 
   String jpql();
+
+  ReturnMode returns() default ReturnMode.AUTO;
+
+  /**
+   * The count query of a {@link ReturnMode#PAGE} query, derived from the
+   * query itself if left blank.
+   */
+  String countQuery() default "";
 }
@@ -8,10 +8,11 @@ import com.squareup.javapoet.*;
 import dev.sanda.datafi.DatafiStaticUtils;
 import dev.sanda.datafi.annotations.MainClass;
 import dev.sanda.datafi.annotations.TransientModule;
+import dev.sanda.datafi.annotations.query.WithNativeQueryScripts;
+import dev.sanda.datafi.annotations.query.WithQueryScripts;
 import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
 import dev.sanda.datafi.code_generator.query.CustomSQLQueryFactory;
 import dev.sanda.datafi.reflection.runtime_services.CollectionsTypeResolver;
-import java.io.IOException;
 import java.util.*;
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
@@ -28,12 +29,43 @@ import org.springframework.context.annotation.Configuration;
 
 /**
  * Takes care of generating all the source files needed for a jpa data access layer.
+ * Registered with gradle as a dynamic incremental processor, which is only
+ * aggregating if enabled via the "datafi.incremental=true" processor option.
+ * Query scripts are read as resources, which gradle doesn't track as inputs,
+ * hence modules using them mustn't enable it.
  */
 @SupportedAnnotationTypes("*")
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 @AutoService(Processor.class)
 public class AnnotationProcessor extends AbstractProcessor {
 
+  public static final String INCREMENTAL_OPTION = "datafi.incremental";
+  public static final String PRINT_GENERATED_SOURCES_OPTION =
+    "datafi.printGeneratedSources";
+  private static final String GRADLE_AGGREGATING_OPTION =
+    "org.gradle.annotation.processing.aggregating";
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    val options = new HashSet<String>(
+      Arrays.asList(INCREMENTAL_OPTION, PRINT_GENERATED_SOURCES_OPTION)
+    );
+    if (isIncremental()) options.add(GRADLE_AGGREGATING_OPTION);
+    return options;
+  }
+
+  private boolean isIncremental() {
+    return "true".equals(processingEnv.getOptions().get(INCREMENTAL_OPTION));
+  }
+
+  public static boolean isPrintGeneratedSources(
+    ProcessingEnvironment processingEnv
+  ) {
+    return Boolean.parseBoolean(
+      processingEnv.getOptions().get(PRINT_GENERATED_SOURCES_OPTION)
+    );
+  }
+
   @Override
   public boolean process(
     Set<? extends TypeElement> annotations,
@@ -46,10 +78,14 @@ public class AnnotationProcessor extends AbstractProcessor {
     ) return false;
     val entitySpecs = getEntityApiSpecs(roundEnvironment, processingEnv);
     if (entitySpecs.isEmpty()) return false;
+    if (isIncremental()) warnOfQueryScripts(entitySpecs);
     val customSqlQueriesMap = new CustomSQLQueryFactory(processingEnv)
       .constructCustomQueries(entitySpecs);
     val searchMethodsMap = new FreeTextSearchMethodsFactory(processingEnv)
       .resolveFreeTextSearchMethods(entitySpecs);
+    new ProjectionFactory(processingEnv).generateProjections(entitySpecs);
+    new BulkInsertWriterFactory(processingEnv)
+      .generateBulkInsertWriters(entitySpecs);
     //generate a custom jpa repository for each entity
     DaoFactory daoFactory = new DaoFactory(processingEnv);
     DataManagerFactory dataManagerFactory = new DataManagerFactory(
@@ -69,7 +105,11 @@ public class AnnotationProcessor extends AbstractProcessor {
     dataManagerFactory.addBasePackageResolver(
       getModelPackageNames(entitySpecs)
     );
+    dataManagerFactory.addFetchPlanResolver(
+      new FetchPlanFactory(processingEnv).resolveFetchPlans(entitySpecs)
+    );
     dataManagerFactory.writeToFile();
+    new IndexAdvisorFactory(processingEnv).adviseIndexes(entitySpecs);
     /*
         create a configuration source file such that
         generated spring beans are included within
@@ -79,12 +119,36 @@ public class AnnotationProcessor extends AbstractProcessor {
     setEntityFieldCollectionTypeResolversBean(entitySpecs, roundEnvironment);
     DaoAggregatorFactory.generateDaoCollectorImpl(
       getModelPackageNames(entitySpecs),
+      entitySpecs,
       processingEnv
     );
     //return false - these annotations are needed for the web-service layer as well
     return false;
   }
 
+  private void warnOfQueryScripts(List<EntityDalSpec> entitySpecs) {
+    entitySpecs
+      .stream()
+      .filter(
+        entity ->
+          entity.hasAnnotation(WithQueryScripts.class) ||
+          entity.hasAnnotation(WithNativeQueryScripts.class)
+      )
+      .forEach(
+        entity ->
+          processingEnv
+            .getMessager()
+            .printMessage(
+              Diagnostic.Kind.WARNING,
+              "Query scripts aren't tracked by incremental builds, hence " +
+              "changes to them require a full rebuild, unless the \"" +
+              INCREMENTAL_OPTION +
+              "\" option is disabled",
+              entity.getElement()
+            )
+      );
+  }
+
   private void setEntityFieldCollectionTypeResolversBean(
     List<EntityDalSpec> entityDalSpecs,
     RoundEnvironment env
@@ -112,11 +176,12 @@ public class AnnotationProcessor extends AbstractProcessor {
             }
           )
     );
-    generateCollectionsTypesResolver(collectionsTypes, env);
+    generateCollectionsTypesResolver(collectionsTypes, entityDalSpecs, env);
   }
 
   private void generateCollectionsTypesResolver(
     Map<String, ClassName> collectionsTypes,
+    List<EntityDalSpec> entityDalSpecs,
     RoundEnvironment env
   ) {
     TypeName mapType = ParameterizedTypeName.get(
@@ -138,23 +203,22 @@ public class AnnotationProcessor extends AbstractProcessor {
       "return new $T(typeResolverMap)",
       CollectionsTypeResolver.class
     );
-    TypeSpec typeResolverMapFactory = TypeSpec
+    TypeSpec.Builder typeResolverMapFactory = TypeSpec
       .classBuilder("TypeResolverMapFactory")
       .addModifiers(PUBLIC)
       .addAnnotation(Configuration.class)
-      .addMethod(builder.build())
-      .build();
-    try {
-      val file = JavaFile
-        .builder(getBasePackage(env), typeResolverMapFactory)
-        .build();
-      file.writeTo(System.out);
-      file.writeTo(processingEnv.getFiler());
-    } catch (IOException e) {
-      processingEnv
-        .getMessager()
-        .printMessage(Diagnostic.Kind.ERROR, e.toString());
-    }
+      .addMethod(builder.build());
+    entityDalSpecs.forEach(
+      entity ->
+        typeResolverMapFactory.addOriginatingElement(entity.getElement())
+    );
+    writeToJavaFile(
+      "TypeResolverMapFactory",
+      getBasePackage(env),
+      typeResolverMapFactory,
+      processingEnv,
+      "collections type resolver"
+    );
   }
 
   private void setComponentScan(
@@ -178,6 +242,9 @@ public class AnnotationProcessor extends AbstractProcessor {
             .addMember("basePackages", "{$S}", "dev.sanda")
             .build()
         );
+      entityDalSpecs.forEach(
+        entity -> builder.addOriginatingElement(entity.getElement())
+      );
       writeToJavaFile(
         simpleClassName,
         basePackageName(entityDalSpecs, roundEnv),
@@ -0,0 +1,403 @@
+package dev.sanda.datafi.code_generator;
+
+import static dev.sanda.datafi.DatafiStaticUtils.*;
+
+import com.squareup.javapoet.*;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import dev.sanda.datafi.persistence.SimpleId;
+import dev.sanda.datafi.persistence.bulk_insert.BulkInsertWriter;
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.persistence.*;
+import javax.tools.Diagnostic;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates a {@link BulkInsertWriter} for each entity whose persistent fields
+ * all map onto single columns of its own table - i.e. basic values, simple ids
+ * and the foreign keys of owned to-one associations. Entities with embedded
+ * values, generated ids, converters or table inheritance are skipped, with a
+ * compilation note. Of the entity's lifecycle callbacks, only its public
+ * {@link PrePersist} methods are invoked - hence entities with
+ * {@link EntityListeners} (e.g. auditing) or non-insertable columns, whose
+ * values the database or a listener would otherwise provide, are skipped as
+ * well. Default listeners declared in orm.xml aren't visible here, and are
+ * ignored.
+ */
+@RequiredArgsConstructor
+public class BulkInsertWriterFactory {
+
+  private static final Map<String, String> SQL_TYPES = new HashMap<>();
+
+  static {
+    SQL_TYPES.put(String.class.getName(), "VARCHAR");
+    SQL_TYPES.put(Long.class.getName(), "BIGINT");
+    SQL_TYPES.put(Integer.class.getName(), "INTEGER");
+    SQL_TYPES.put(Short.class.getName(), "SMALLINT");
+    SQL_TYPES.put(Byte.class.getName(), "TINYINT");
+    SQL_TYPES.put(Boolean.class.getName(), "BOOLEAN");
+    SQL_TYPES.put(Double.class.getName(), "DOUBLE");
+    SQL_TYPES.put(Float.class.getName(), "REAL");
+    SQL_TYPES.put(Character.class.getName(), "CHAR");
+    SQL_TYPES.put(java.math.BigDecimal.class.getName(), "NUMERIC");
+    SQL_TYPES.put(java.math.BigInteger.class.getName(), "NUMERIC");
+    SQL_TYPES.put(java.time.LocalDate.class.getName(), "DATE");
+    SQL_TYPES.put(java.time.LocalTime.class.getName(), "TIME");
+    SQL_TYPES.put(java.time.LocalDateTime.class.getName(), "TIMESTAMP");
+    SQL_TYPES.put(java.time.Instant.class.getName(), "TIMESTAMP");
+    SQL_TYPES.put(java.time.OffsetDateTime.class.getName(), "TIMESTAMP");
+    SQL_TYPES.put(java.util.Date.class.getName(), "TIMESTAMP");
+    SQL_TYPES.put(java.sql.Date.class.getName(), "DATE");
+    SQL_TYPES.put(java.sql.Timestamp.class.getName(), "TIMESTAMP");
+    SQL_TYPES.put(java.util.UUID.class.getName(), "OTHER");
+  }
+
+  @NonNull
+  private final ProcessingEnvironment processingEnv;
+
+  public void generateBulkInsertWriters(List<EntityDalSpec> entityDalSpecs) {
+    entityDalSpecs.forEach(this::generateBulkInsertWriter);
+  }
+
+  private void generateBulkInsertWriter(EntityDalSpec entityDalSpec) {
+    val entity = entityDalSpec.getElement();
+    val unsupportedReason = unsupportedReasonOf(entity);
+    if (unsupportedReason != null) {
+      processingEnv
+        .getMessager()
+        .printMessage(
+          Diagnostic.Kind.NOTE,
+          "No bulk insert writer generated for " +
+          entityDalSpec.getSimpleName() +
+          ": " +
+          unsupportedReason,
+          entity
+        );
+      return;
+    }
+    val entityType = ClassName.get(entity);
+    val columns = new ArrayList<ColumnBinding>();
+    val prePersistCallbacks = new ArrayList<String>();
+    for (TypeElement type : persistentTypesOf(entity)) {
+      for (Element member : type.getEnclosedElements()) {
+        if (
+          member.getKind() == ElementKind.METHOD &&
+          member.getAnnotation(PrePersist.class) != null &&
+          member.getModifiers().contains(Modifier.PUBLIC)
+        ) prePersistCallbacks.add(simpleNameOf(member));
+      }
+      for (VariableElement field : getFieldsOf(type)) {
+        val binding = bindingOf(entity, field);
+        if (binding != null) columns.add(binding);
+      }
+    }
+    val columnNames = CodeBlock.builder();
+    for (int i = 0; i < columns.size(); i++) columnNames.add(
+      i == 0 ? "$S" : ", $S",
+      columns.get(i).column
+    );
+    val fieldsInitializer = CodeBlock
+      .builder()
+      .add("new $T[] {", Field.class);
+    for (int i = 0; i < columns.size(); i++) fieldsInitializer.add(
+      i == 0 ? "$T.fieldOf($T.class, $S)" : ", $T.fieldOf($T.class, $S)",
+      BulkInsertWriter.class,
+      entityType,
+      columns.get(i).fieldName
+    );
+    fieldsInitializer.add("}");
+    val bind = MethodSpec
+      .methodBuilder("bind")
+      .addAnnotation(Override.class)
+      .addModifiers(Modifier.PUBLIC)
+      .addParameter(entityType, "entity")
+      .addParameter(PreparedStatement.class, "statement")
+      .addParameter(int.class, "firstParameterIndex")
+      .addException(SQLException.class);
+    //bulk inserts bypass the persistence context, and with it any callbacks
+    prePersistCallbacks.forEach(
+      callback -> bind.addStatement("entity.$L()", callback)
+    );
+    for (int i = 0; i < columns.size(); i++) {
+      val column = columns.get(i);
+      val value = CodeBlock.of(
+        "$T.valueOf(FIELDS[$L], entity)",
+        BulkInsertWriter.class,
+        i
+      );
+      bind.addStatement(
+        "statement.setObject(firstParameterIndex + $L, $L, $T.$L)",
+        i,
+        column.converter != null
+          ? CodeBlock.of(
+            "$T.$L($L)",
+            BulkInsertWriter.class,
+            column.converter,
+            value
+          )
+          : value,
+        Types.class,
+        column.sqlType
+      );
+    }
+    val builder = TypeSpec
+      .classBuilder(entityDalSpec.getSimpleName() + "BulkInsertWriter")
+      .addOriginatingElement(entity)
+      .addModifiers(Modifier.PUBLIC)
+      .addAnnotation(Component.class)
+      .addSuperinterface(
+        ParameterizedTypeName.get(
+          ClassName.get(BulkInsertWriter.class),
+          entityType
+        )
+      )
+      .addField(
+        FieldSpec
+          .builder(
+            Field[].class,
+            "FIELDS",
+            Modifier.PRIVATE,
+            Modifier.STATIC,
+            Modifier.FINAL
+          )
+          .initializer(fieldsInitializer.build())
+          .build()
+      )
+      .addField(
+        FieldSpec
+          .builder(
+            ParameterizedTypeName.get(List.class, String.class),
+            "COLUMNS",
+            Modifier.PRIVATE,
+            Modifier.STATIC,
+            Modifier.FINAL
+          )
+          .initializer(
+            "$T.unmodifiableList($T.asList($L))",
+            Collections.class,
+            Arrays.class,
+            columnNames.build()
+          )
+          .build()
+      )
+      .addMethod(
+        MethodSpec
+          .methodBuilder("getEntityType")
+          .addAnnotation(Override.class)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(
+            ParameterizedTypeName.get(ClassName.get(Class.class), entityType)
+          )
+          .addStatement("return $T.class", entityType)
+          .build()
+      )
+      .addMethod(
+        MethodSpec
+          .methodBuilder("getTable")
+          .addAnnotation(Override.class)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(String.class)
+          .addStatement("return $S", tableNameOf(entity))
+          .build()
+      )
+      .addMethod(
+        MethodSpec
+          .methodBuilder("getColumns")
+          .addAnnotation(Override.class)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(ParameterizedTypeName.get(List.class, String.class))
+          .addStatement("return COLUMNS")
+          .build()
+      )
+      .addMethod(bind.build());
+    writeToJavaFile(
+      entityDalSpec.getSimpleName(),
+      entityType.packageName(),
+      builder,
+      processingEnv,
+      "bulk insert writer"
+    );
+  }
+
+  /**
+   * @return the binding of the given field's column, or null if the field
+   * isn't persisted as a column of the entity's table.
+   */
+  private ColumnBinding bindingOf(TypeElement entity, VariableElement field) {
+    if (!isPersistent(field)) return null;
+    val fieldName = simpleNameOf(field);
+    val type = processingEnv
+      .getTypeUtils()
+      .asMemberOf((DeclaredType) entity.asType(), field);
+    if (field.getAnnotation(EmbeddedId.class) != null) return new ColumnBinding(
+      fieldName,
+      "id",
+      "simpleIdValueOf",
+      "BIGINT"
+    );
+    if (
+      field.getAnnotation(ManyToOne.class) != null ||
+      field.getAnnotation(OneToOne.class) != null
+    ) return new ColumnBinding(
+      fieldName,
+      columnNameOf(field),
+      "foreignKeyOf",
+      foreignKeySqlTypeOf(type)
+    );
+    if (isEnum(type)) {
+      val enumerated = field.getAnnotation(Enumerated.class);
+      return enumerated != null && enumerated.value() == EnumType.STRING
+        ? new ColumnBinding(fieldName, columnNameOf(field), "nameOf", "VARCHAR")
+        : new ColumnBinding(
+          fieldName,
+          columnNameOf(field),
+          "ordinalOf",
+          "INTEGER"
+        );
+    }
+    if (
+      type.getKind() == TypeKind.ARRAY
+    ) return new ColumnBinding(fieldName, columnNameOf(field), null, "BINARY");
+    val typeName = typeNameOf(type);
+    val sqlType = SQL_TYPES.get(typeName);
+    val converter = typeName.equals(Character.class.getName())
+      ? "stringOf"
+      : sqlType.equals("TIMESTAMP") ? "timestampOf" : null;
+    return new ColumnBinding(
+      fieldName,
+      columnNameOf(field),
+      converter,
+      sqlType
+    );
+  }
+
+  private String unsupportedReasonOf(TypeElement entity) {
+    if (entity.getModifiers().contains(Modifier.ABSTRACT)) return "abstract";
+    if (
+      entity.getAnnotation(Inheritance.class) != null ||
+      superclassOf(entity) != null &&
+      superclassOf(entity).getAnnotation(Entity.class) != null
+    ) return "entity inheritance";
+    for (TypeElement type : persistentTypesOf(entity)) {
+      if (type.getAnnotation(EntityListeners.class) != null) return (
+        "entity listeners of " + simpleNameOf(type)
+      );
+      for (VariableElement field : getFieldsOf(type)) {
+        if (!isPersistent(field)) continue;
+        val name = simpleNameOf(field);
+        val column = field.getAnnotation(Column.class);
+        val joinColumn = field.getAnnotation(JoinColumn.class);
+        if (
+          column != null && !column.insertable() ||
+          joinColumn != null && !joinColumn.insertable()
+        ) return "non insertable field " + name;
+        if (field.getAnnotation(GeneratedValue.class) != null) return (
+          "database generated id " + name
+        );
+        if (field.getAnnotation(Convert.class) != null) return (
+          "converted field " + name
+        );
+        if (field.getAnnotation(Embedded.class) != null) return (
+          "embedded field " + name
+        );
+        val type = processingEnv
+          .getTypeUtils()
+          .asMemberOf((DeclaredType) entity.asType(), field);
+        if (
+          field.getAnnotation(EmbeddedId.class) != null &&
+          !typeNameOf(type).equals(SimpleId.class.getName())
+        ) return "composite id " + name;
+        if (
+          field.getAnnotation(EmbeddedId.class) == null &&
+          field.getAnnotation(ManyToOne.class) == null &&
+          field.getAnnotation(OneToOne.class) == null &&
+          !isEnum(type) &&
+          type.getKind() != TypeKind.ARRAY &&
+          !SQL_TYPES.containsKey(typeNameOf(type))
+        ) return "unsupported type of field " + name;
+      }
+    }
+    return null;
+  }
+
+  private boolean isPersistent(VariableElement field) {
+    val modifiers = field.getModifiers();
+    if (
+      modifiers.contains(Modifier.STATIC) ||
+      modifiers.contains(Modifier.TRANSIENT) ||
+      field.getAnnotation(Transient.class) != null ||
+      field.getAnnotation(OneToMany.class) != null ||
+      field.getAnnotation(ManyToMany.class) != null ||
+      field.getAnnotation(ElementCollection.class) != null
+    ) return false;
+    val oneToOne = field.getAnnotation(OneToOne.class);
+    return oneToOne == null || oneToOne.mappedBy().isEmpty();
+  }
+
+  private String foreignKeySqlTypeOf(TypeMirror associatedType) {
+    val associatedEntity = (TypeElement) processingEnv
+      .getTypeUtils()
+      .asElement(associatedType);
+    val idType = getIdType(associatedEntity, processingEnv);
+    if (idType == null) return "OTHER";
+    val idTypeName = idType.canonicalName();
+    if (idTypeName.equals(SimpleId.class.getName())) return "BIGINT";
+    return SQL_TYPES.getOrDefault(idTypeName, "OTHER");
+  }
+
+  //the entity itself, preceded by any of its @MappedSuperclass ancestors
+  private static List<TypeElement> persistentTypesOf(TypeElement entity) {
+    val result = new LinkedList<TypeElement>();
+    for (
+      TypeElement current = entity;
+      current != null;
+      current = superclassOf(current)
+    ) {
+      if (
+        current != entity &&
+        current.getAnnotation(MappedSuperclass.class) == null
+      ) break;
+      result.addFirst(current);
+    }
+    return result;
+  }
+
+  private boolean isEnum(TypeMirror type) {
+    val element = processingEnv.getTypeUtils().asElement(type);
+    return element != null && element.getKind() == ElementKind.ENUM;
+  }
+
+  private String typeNameOf(TypeMirror type) {
+    if (type.getKind().isPrimitive()) return (
+      (TypeElement) processingEnv
+        .getTypeUtils()
+        .boxedClass((javax.lang.model.type.PrimitiveType) type)
+    ).getQualifiedName()
+      .toString();
+    val element = processingEnv.getTypeUtils().asElement(type);
+    return element instanceof TypeElement
+      ? ((TypeElement) element).getQualifiedName().toString()
+      : type.toString();
+  }
+
+  @RequiredArgsConstructor
+  private static class ColumnBinding {
+
+    private final String fieldName;
+    private final String column;
+    //the BulkInsertWriter helper converting the field value, if any
+    private final String converter;
+    private final String sqlType;
+  }
+}
@@ -3,6 +3,7 @@ package dev.sanda.datafi.code_generator;
 import static dev.sanda.datafi.DatafiStaticUtils.writeToJavaFile;
 
 import com.squareup.javapoet.*;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
 import dev.sanda.datafi.persistence.GenericDao;
 import dev.sanda.datafi.service.DaoCollector;
 import java.util.List;
@@ -20,6 +21,7 @@ public class DaoAggregatorFactory {
 
   public static void generateDaoCollectorImpl(
     List<String> packageNames,
+    List<EntityDalSpec> entityDalSpecs,
     ProcessingEnvironment processingEnvironment
   ) {
     val componentScanBuilder = AnnotationSpec.builder(ComponentScan.class);
@@ -54,6 +56,9 @@ public class DaoAggregatorFactory {
           .addAnnotation(Autowired.class)
           .build()
       );
+    entityDalSpecs.forEach(
+      entityDalSpec -> builder.addOriginatingElement(entityDalSpec.getElement())
+    );
     writeToJavaFile(
       "DaoCollectorImpl",
       packageNames.get(0),
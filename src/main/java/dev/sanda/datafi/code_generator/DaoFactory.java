@@ -3,13 +3,12 @@ package dev.sanda.datafi.code_generator;
 import static com.squareup.javapoet.ParameterizedTypeName.get;
 import static dev.sanda.datafi.DatafiStaticUtils.isDirectlyOrIndirectlyAnnotatedAs;
 
-import com.squareup.javapoet.ClassName;
-import com.squareup.javapoet.MethodSpec;
-import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.*;
 import dev.sanda.datafi.DatafiStaticUtils;
 import dev.sanda.datafi.annotations.finders.FindAllBy;
 import dev.sanda.datafi.annotations.finders.FindBy;
 import dev.sanda.datafi.annotations.finders.FindByUnique;
+import dev.sanda.datafi.annotations.projections.WithProjection;
 import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
 import dev.sanda.datafi.code_generator.annotated_element_specs.FieldDalSpec;
 import dev.sanda.datafi.persistence.GenericDao;
@@ -17,6 +16,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
@@ -25,6 +25,11 @@ import javax.persistence.EmbeddedId;
 import javax.persistence.Id;
 import lombok.Data;
 import lombok.NonNull;
+import lombok.val;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Data
@@ -36,7 +41,7 @@ public class DaoFactory {
   protected void generateDao(
     EntityDalSpec entityDalSpec,
     Map<TypeElement, List<MethodSpec>> customSQLQueriesMap,
-    Map<TypeElement, MethodSpec> freeTextSearchMethods
+    Map<TypeElement, List<MethodSpec>> freeTextSearchMethods
   ) {
     String className = entityDalSpec.getElement().getQualifiedName().toString();
     int lastDot = className.lastIndexOf('.');
@@ -46,6 +51,7 @@ public class DaoFactory {
 
     TypeSpec.Builder builder = TypeSpec
       .interfaceBuilder(repositoryName)
+      .addOriginatingElement(entityDalSpec.getElement())
       .addModifiers(Modifier.PUBLIC)
       .addAnnotation(Repository.class)
       .addSuperinterface(
@@ -58,6 +64,9 @@ public class DaoFactory {
           ClassName.get(entityDalSpec.getElement())
         )
       );
+    if (
+      entityDalSpec.getEntityApiSpec() != null
+    ) builder.addOriginatingElement(entityDalSpec.getEntityApiSpec());
     Collection<FieldDalSpec> annotatedFields = entityDalSpec.getFieldDalSpecs();
     if (annotatedFields != null) annotatedFields.forEach(
       annotatedField ->
@@ -70,7 +79,7 @@ public class DaoFactory {
       .forEach(builder::addMethod);
     if (
       freeTextSearchMethods.get(entityDalSpec.getElement()) != null
-    ) builder.addMethod(freeTextSearchMethods.get(entityDalSpec.getElement()));
+    ) builder.addMethods(freeTextSearchMethods.get(entityDalSpec.getElement()));
     DatafiStaticUtils.writeToJavaFile(
       entityDalSpec.getSimpleName(),
       packageName,
@@ -100,6 +109,51 @@ public class DaoFactory {
       builder,
       fieldDalSpec
     );
+    if (
+      isFindBy(fieldDalSpec) ||
+      isFindAllBy(fieldDalSpec) ||
+      isFindByUnique(fieldDalSpec)
+    ) addCountFinders(builder, fieldDalSpec);
+  }
+
+  /**
+   * Adds "existsBy...", "countBy..." and "countBy...In" methods for the given
+   * field, none of which load any entities.
+   */
+  private void addCountFinders(
+    TypeSpec.Builder builder,
+    FieldDalSpec annotatedField
+  ) {
+    val fieldName = annotatedField.getSimpleName();
+    val pascalCaseName = DatafiStaticUtils.toPascalCase(fieldName);
+    val fieldType = ClassName.get(annotatedField.getElement().asType());
+    builder.addMethod(
+      MethodSpec
+        .methodBuilder("existsBy" + pascalCaseName)
+        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+        .addParameter(fieldType, fieldName)
+        .returns(boolean.class)
+        .build()
+    );
+    builder.addMethod(
+      MethodSpec
+        .methodBuilder("countBy" + pascalCaseName)
+        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+        .addParameter(fieldType, fieldName)
+        .returns(long.class)
+        .build()
+    );
+    builder.addMethod(
+      MethodSpec
+        .methodBuilder("countBy" + pascalCaseName + "In")
+        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+        .addParameter(
+          get(ClassName.get(List.class), fieldType),
+          DatafiStaticUtils.toPlural(fieldName)
+        )
+        .returns(long.class)
+        .build()
+    );
   }
 
   private boolean isFindByUnique(FieldDalSpec annotatedField) {
@@ -171,6 +225,16 @@ public class DaoFactory {
           )
           .build()
       );
+      val fieldName = annotatedField.getSimpleName();
+      addProjectedFinders(
+        entityDalSpec,
+        builder,
+        "findBy" + DatafiStaticUtils.toPascalCase(fieldName),
+        ClassName.get(annotatedField.getElement().asType()),
+        fieldName,
+        fieldName + " = :" + fieldName,
+        ClassName.get(Optional.class)
+      );
     }
   }
 
@@ -213,6 +277,20 @@ public class DaoFactory {
         )
         .build()
     );
+    val fieldName = annotatedField.getSimpleName();
+    val parameterName = DatafiStaticUtils.toPlural(fieldName);
+    addProjectedFinders(
+      entityDalSpec,
+      builder,
+      "findAllBy" + DatafiStaticUtils.toPascalCase(fieldName) + "In",
+      get(
+        ClassName.get(List.class),
+        ClassName.get(annotatedField.getElement().asType())
+      ),
+      parameterName,
+      fieldName + " IN :" + parameterName,
+      ClassName.get(List.class)
+    );
   }
 
   private void handleFindBy(
@@ -239,5 +317,128 @@ public class DaoFactory {
         )
         .build()
     );
+    val fieldName = annotatedField.getSimpleName();
+    addProjectedFinders(
+      entityDalSpec,
+      builder,
+      "findBy" + DatafiStaticUtils.toPascalCase(fieldName),
+      ClassName.get(annotatedField.getElement().asType()),
+      fieldName,
+      fieldName + " = :" + fieldName,
+      ClassName.get(List.class)
+    );
+    //paged and streaming variants, for fields whose values may match too many entities to load at once
+    builder.addMethod(
+      MethodSpec
+        .methodBuilder("findBy" + DatafiStaticUtils.toPascalCase(fieldName))
+        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+        .addParameter(
+          ClassName.get(annotatedField.getElement().asType()),
+          fieldName
+        )
+        .addParameter(Pageable.class, "pageable")
+        .returns(
+          get(
+            ClassName.get(Page.class),
+            ClassName.get(entityDalSpec.getElement())
+          )
+        )
+        .build()
+    );
+    builder.addMethod(
+      MethodSpec
+        .methodBuilder("streamBy" + DatafiStaticUtils.toPascalCase(fieldName))
+        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+        .addParameter(
+          ClassName.get(annotatedField.getElement().asType()),
+          fieldName
+        )
+        .returns(
+          get(
+            ClassName.get(Stream.class),
+            ClassName.get(entityDalSpec.getElement())
+          )
+        )
+        .build()
+    );
+  }
+
+  /**
+   * Adds a dynamically projected overload of the given finder - i.e. one which
+   * takes the projection type as a final argument, and is derived by spring
+   * data - as well as an "...As[projection name]" variant for each of the
+   * entity's declared projections.
+   */
+  private void addProjectedFinders(
+    EntityDalSpec entityDalSpec,
+    TypeSpec.Builder builder,
+    String methodName,
+    TypeName parameterType,
+    String parameterName,
+    String condition,
+    ClassName resultType
+  ) {
+    val projectionVariable = TypeVariableName.get("P");
+    builder.addMethod(
+      MethodSpec
+        .methodBuilder(methodName)
+        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+        .addTypeVariable(projectionVariable)
+        .addParameter(parameterType, parameterName)
+        .addParameter(
+          get(ClassName.get(Class.class), projectionVariable),
+          "projection"
+        )
+        .returns(get(resultType, projectionVariable))
+        .build()
+    );
+    val entityName = entityDalSpec.getSimpleName();
+    val placeHolder = DatafiStaticUtils.firstLowerCaseLetterOf(entityName);
+    for (WithProjection projection : entityDalSpec.getAnnotationsByType(
+      WithProjection.class
+    )) {
+      val query =
+        "SELECT " +
+        ProjectionFactory.selectionOf(placeHolder, projection) +
+        " FROM " +
+        entityName +
+        " " +
+        placeHolder +
+        " WHERE " +
+        placeHolder +
+        "." +
+        condition;
+      builder.addMethod(
+        MethodSpec
+          .methodBuilder(
+            methodName + ProjectionFactory.methodSuffixOf(projection)
+          )
+          .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+          .addAnnotation(
+            AnnotationSpec
+              .builder(Query.class)
+              .addMember("value", "$S", query)
+              .build()
+          )
+          .addParameter(
+            ParameterSpec
+              .builder(parameterType, parameterName)
+              .addAnnotation(
+                AnnotationSpec
+                  .builder(Param.class)
+                  .addMember("value", "$S", parameterName)
+                  .build()
+              )
+              .build()
+          )
+          .returns(
+            get(
+              resultType,
+              ProjectionFactory.projectionTypeOf(entityDalSpec, projection)
+            )
+          )
+          .build()
+      );
+    }
   }
 }
@@ -2,15 +2,16 @@ package dev.sanda.datafi.code_generator;
 
 import static dev.sanda.datafi.DatafiStaticUtils.writeToJavaFile;
 
-import com.squareup.javapoet.ClassName;
-import com.squareup.javapoet.MethodSpec;
-import com.squareup.javapoet.ParameterizedTypeName;
-import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.*;
 import dev.sanda.datafi.DatafiStaticUtils;
 import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import dev.sanda.datafi.reflection.runtime_services.FetchPlanResolver;
 import dev.sanda.datafi.service.DataManager;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Modifier;
 import lombok.Data;
@@ -45,7 +46,9 @@ public class DataManagerFactory {
       .addAnnotation(Bean.class)
       .returns(ParameterizedTypeName.get(dataManagerType, entityType))
       .addStatement("return new $T($T.class)", dataManagerType, entityType);
-    dataManagersConfig.addMethod(builder.build());
+    dataManagersConfig
+      .addOriginatingElement(entityDalSpec.getElement())
+      .addMethod(builder.build());
   }
 
   public void addBasePackageResolver(List<String> modelPackageNames) {
@@ -73,6 +76,48 @@ public class DataManagerFactory {
     );
   }
 
+  public void addFetchPlanResolver(Map<String, List<String>> fetchPlans) {
+    val mapType = ParameterizedTypeName.get(
+      ClassName.get(Map.class),
+      ClassName.get(String.class),
+      ArrayTypeName.of(String.class)
+    );
+    val builder = MethodSpec
+      .methodBuilder("fetchPlanResolver")
+      .addAnnotation(Bean.class)
+      .addModifiers(Modifier.PUBLIC)
+      .returns(FetchPlanResolver.class)
+      .addStatement(
+        "$T fetchPlans = new $T<>()",
+        mapType,
+        ClassName.get(HashMap.class)
+      );
+    fetchPlans.forEach(
+      (key, paths) ->
+        builder.addStatement(
+          "fetchPlans.put($S, new $T[] { $L })",
+          key,
+          String.class,
+          CodeBlock.join(
+            paths
+              .stream()
+              .map(path -> CodeBlock.of("$S", path))
+              .collect(Collectors.toList()),
+            ", "
+          )
+        )
+    );
+    dataManagersConfig.addMethod(
+      builder
+        .addStatement(
+          "return new $T($L)",
+          FetchPlanResolver.class,
+          "fetchPlans"
+        )
+        .build()
+    );
+  }
+
   private static TypeSpec.Builder initDataManagerConfig() {
     return TypeSpec
       .classBuilder("DataManagersConfig")
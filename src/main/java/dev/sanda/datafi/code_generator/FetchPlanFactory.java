@@ -0,0 +1,106 @@
+package dev.sanda.datafi.code_generator;
+
+import static dev.sanda.datafi.DatafiStaticUtils.*;
+
+import dev.sanda.datafi.DatafiStaticUtils;
+import dev.sanda.datafi.annotations.fetch_plans.WithFetchPlan;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import dev.sanda.datafi.reflection.runtime_services.FetchPlanResolver;
+import java.util.*;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToOne;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Resolves the named fetch plans of each entity - i.e. the generated
+ * "references" plan, as well as any plans declared via @WithFetchPlan.
+ */
+@RequiredArgsConstructor
+public class FetchPlanFactory {
+
+  @NonNull
+  private final ProcessingEnvironment processingEnv;
+
+  /**
+   * @return the attribute paths of each fetch plan, keyed by "EntitySimpleName.planName"
+   */
+  public Map<String, List<String>> resolveFetchPlans(
+    List<EntityDalSpec> entityDalSpecs
+  ) {
+    Map<String, List<String>> result = new LinkedHashMap<>();
+    for (EntityDalSpec entityDalSpec : entityDalSpecs) {
+      val entity = entityDalSpec.getElement();
+      val keyPrefix = entityDalSpec.getSimpleName() + ".";
+      result.put(
+        keyPrefix + FetchPlanResolver.REFERENCES,
+        referencesOf(entity)
+      );
+      val fetchPlans = entityDalSpec.getAnnotationsByType(WithFetchPlan.class);
+      for (WithFetchPlan fetchPlan : fetchPlans) {
+        val paths = Arrays.asList(fetchPlan.paths());
+        paths.forEach(path -> validatePath(entity, path, fetchPlan.name()));
+        result.put(keyPrefix + fetchPlan.name(), paths);
+      }
+    }
+    return result;
+  }
+
+  //including those declared within (mapped) superclasses
+  private List<String> referencesOf(TypeElement entity) {
+    val result = new ArrayList<String>();
+    for (
+      TypeElement current = entity;
+      current != null;
+      current = superclassOf(current)
+    ) getFieldsOf(current)
+      .stream()
+      .filter(
+        field -> hasOneOfAnnotations(field, ManyToOne.class, OneToOne.class)
+      )
+      .map(DatafiStaticUtils::simpleNameOf)
+      .forEach(result::add);
+    return result;
+  }
+
+  private void validatePath(TypeElement entity, String path, String planName) {
+    TypeElement currentType = entity;
+    for (String segment : path.split("\\.")) {
+      val field = currentType != null ? findField(currentType, segment) : null;
+      if (field == null) {
+        logCompilationError(
+          processingEnv,
+          entity,
+          "Invalid path '" +
+          path +
+          "' in fetch plan '" +
+          planName +
+          "': no such attribute '" +
+          segment +
+          "'"
+        );
+        return;
+      }
+      currentType = referencedTypeOf(field.asType());
+    }
+  }
+
+  //for collections, the referenced type is that of the collection elements
+  private TypeElement referencedTypeOf(TypeMirror fieldType) {
+    if (fieldType.getKind() != TypeKind.DECLARED) return null;
+    val declaredType = (DeclaredType) fieldType;
+    val typeArguments = declaredType.getTypeArguments();
+    val referencedType = typeArguments.isEmpty()
+      ? declaredType
+      : typeArguments.get(typeArguments.size() - 1);
+    return referencedType.getKind() == TypeKind.DECLARED
+      ? (TypeElement) ((DeclaredType) referencedType).asElement()
+      : null;
+  }
+}
@@ -8,8 +8,12 @@ import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import dev.sanda.datafi.DatafiStaticUtils;
+import dev.sanda.datafi.annotations.free_text_search.FreeTextSearchDialect;
 import dev.sanda.datafi.annotations.free_text_search.WithFreeTextSearchByFields;
+import dev.sanda.datafi.annotations.projections.WithProjection;
 import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 import java.util.stream.Collectors;
 import javax.annotation.processing.ProcessingEnvironment;
@@ -17,6 +21,8 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
 import lombok.Data;
 import lombok.NonNull;
 import lombok.val;
@@ -28,15 +34,19 @@ import org.springframework.data.repository.query.Param;
 @Data
 public class FreeTextSearchMethodsFactory {
 
+  public static final String INDEX_DDL_RESOURCE =
+    "META-INF/datafi/free-text-search-indexes.sql";
+
   @NonNull
   private ProcessingEnvironment processingEnv;
 
   private Map<TypeMirror, TypeElement> typeMirrorTypeElementMap;
 
-  protected Map<TypeElement, MethodSpec> resolveFreeTextSearchMethods(
+  protected Map<TypeElement, List<MethodSpec>> resolveFreeTextSearchMethods(
     List<EntityDalSpec> entityDalSpecs
   ) {
-    Map<TypeElement, MethodSpec> result = new HashMap<>();
+    Map<TypeElement, List<MethodSpec>> result = new HashMap<>();
+    StringBuilder indexDdl = new StringBuilder();
     typeMirrorTypeElementMap =
       entityDalSpecs
         .stream()
@@ -51,58 +61,105 @@ public class FreeTextSearchMethodsFactory {
       .collect(Collectors.toSet())
       .forEach(
         entityDavSpecWithFreeTextSearchFields -> {
-          val searchFieldNames = Arrays.asList(
-            entityDavSpecWithFreeTextSearchFields
-              .getAnnotation(WithFreeTextSearchByFields.class)
-              .value()
+          val annotation = entityDavSpecWithFreeTextSearchFields.getAnnotation(
+            WithFreeTextSearchByFields.class
           );
+          val searchFieldNames = Arrays.asList(annotation.value());
+          val dialect = annotation.dialect();
           if (!searchFieldNames.isEmpty()) {
-            MethodSpec freeTextSearchMethod = generateFreeTextSearchMethod(
-              entityDavSpecWithFreeTextSearchFields,
-              searchFieldNames
+            List<MethodSpec> freeTextSearchMethods = new ArrayList<>();
+            freeTextSearchMethods.add(
+              generateFreeTextSearchMethod(
+                entityDavSpecWithFreeTextSearchFields,
+                searchFieldNames,
+                dialect
+              )
+            );
+            entityDavSpecWithFreeTextSearchFields
+              .getAnnotationsByType(WithProjection.class)
+              .forEach(
+                projection ->
+                  freeTextSearchMethods.add(
+                    generateProjectedFreeTextSearchMethod(
+                      entityDavSpecWithFreeTextSearchFields,
+                      searchFieldNames,
+                      dialect,
+                      projection
+                    )
+                  )
+              );
+            freeTextSearchMethods.removeIf(Objects::isNull);
+            //for reading the chunks of fetchAll pages
+            freeTextSearchMethods.addAll(
+              freeTextSearchMethods
+                .stream()
+                .map(DatafiStaticUtils::sliceVariantOf)
+                .collect(Collectors.toList())
             );
             result.put(
               entityDavSpecWithFreeTextSearchFields.getElement(),
-              freeTextSearchMethod
+              freeTextSearchMethods
             );
+            if (dialect != FreeTextSearchDialect.PORTABLE) {
+              val ddl = nativeQueryFactory()
+                .indexDdl(
+                  entityDavSpecWithFreeTextSearchFields,
+                  searchFieldNames,
+                  dialect
+                );
+              if (ddl != null) indexDdl.append(ddl).append("\n");
+            }
           }
         }
       );
+    if (indexDdl.length() > 0) writeIndexDdl(
+      indexDdl.toString(),
+      result.keySet().toArray(new Element[0])
+    );
     return result;
   }
 
   private MethodSpec generateFreeTextSearchMethod(
     EntityDalSpec entityDalSpec,
-    List<String> searchFieldNames
+    List<String> searchFieldNames,
+    FreeTextSearchDialect dialect
   ) {
     String entityName = entityDalSpec.getSimpleName();
+    String placeHolder = DatafiStaticUtils.firstLowerCaseLetterOf(entityName);
     String methodName = "freeTextSearch";
-    ParameterSpec argument = ParameterSpec
-      .builder(String.class, "searchTerm")
-      .addAnnotation(
-        AnnotationSpec
-          .builder(Param.class)
-          .addMember("value", "$S", "searchTerm")
-          .build()
-      )
-      .build();
-    String freeTextSearchQuery = freeTextSearchQuery(
-      entityName,
-      searchFieldNames,
-      isArchivable(entityDalSpec.getElement(), processingEnv),
-      false
-    );
+    AnnotationSpec query;
+    if (dialect == FreeTextSearchDialect.PORTABLE) {
+      boolean isArchivable = isArchivable(
+        entityDalSpec.getElement(),
+        processingEnv
+      );
+      query =
+        queryAnnotation(
+          freeTextSearchQuery(
+            entityName,
+            searchFieldNames,
+            isArchivable,
+            false
+          ),
+          freeTextSearchQuery(entityName, searchFieldNames, isArchivable, true),
+          false
+        );
+    } else {
+      query =
+        nativeQueryAnnotation(
+          entityDalSpec,
+          searchFieldNames,
+          dialect,
+          placeHolder + ".*"
+        );
+      if (query == null) return null;
+    }
     return MethodSpec
       .methodBuilder(methodName)
       .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
-      .addParameter(argument)
+      .addParameter(searchTermParameter())
       .addParameter(Pageable.class, "paginator")
-      .addAnnotation(
-        AnnotationSpec
-          .builder(Query.class)
-          .addMember("value", "$S", freeTextSearchQuery)
-          .build()
-      )
+      .addAnnotation(query)
       .returns(
         get(
           ClassName.get(Page.class),
@@ -112,6 +169,140 @@ public class FreeTextSearchMethodsFactory {
       .build();
   }
 
+  /**
+   * Same as the entity returning free text search method,
+   * only selecting just the columns of the given projection.
+   */
+  private MethodSpec generateProjectedFreeTextSearchMethod(
+    EntityDalSpec entityDalSpec,
+    List<String> searchFieldNames,
+    FreeTextSearchDialect dialect,
+    WithProjection projection
+  ) {
+    String entityName = entityDalSpec.getSimpleName();
+    String placeHolder = DatafiStaticUtils.firstLowerCaseLetterOf(entityName);
+    AnnotationSpec query;
+    if (dialect == FreeTextSearchDialect.PORTABLE) {
+      boolean isArchivable = isArchivable(
+        entityDalSpec.getElement(),
+        processingEnv
+      );
+      query =
+        queryAnnotation(
+          freeTextSearchQuery(
+            entityName,
+            searchFieldNames,
+            isArchivable,
+            ProjectionFactory.selectionOf(placeHolder, projection)
+          ),
+          freeTextSearchQuery(entityName, searchFieldNames, isArchivable, true),
+          false
+        );
+    } else {
+      val selection = nativeQueryFactory()
+        .selectionOf(entityDalSpec, Arrays.asList(projection.fields()));
+      if (selection == null) return null;
+      query =
+        nativeQueryAnnotation(
+          entityDalSpec,
+          searchFieldNames,
+          dialect,
+          selection
+        );
+      if (query == null) return null;
+    }
+    return MethodSpec
+      .methodBuilder(
+        "freeTextSearch" + ProjectionFactory.methodSuffixOf(projection)
+      )
+      .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+      .addParameter(searchTermParameter())
+      .addParameter(Pageable.class, "paginator")
+      .addAnnotation(query)
+      .returns(
+        get(
+          ClassName.get(Page.class),
+          ProjectionFactory.projectionTypeOf(entityDalSpec, projection)
+        )
+      )
+      .build();
+  }
+
+  private AnnotationSpec nativeQueryAnnotation(
+    EntityDalSpec entityDalSpec,
+    List<String> searchFieldNames,
+    FreeTextSearchDialect dialect,
+    String selection
+  ) {
+    val nativeQueryFactory = nativeQueryFactory();
+    val query = nativeQueryFactory.searchQuery(
+      entityDalSpec,
+      searchFieldNames,
+      dialect,
+      selection
+    );
+    val countQuery = nativeQueryFactory.searchQuery(
+      entityDalSpec,
+      searchFieldNames,
+      dialect,
+      "COUNT(*)"
+    );
+    if (query == null || countQuery == null) return null;
+    return queryAnnotation(query, countQuery, true);
+  }
+
+  private static AnnotationSpec queryAnnotation(
+    String query,
+    String countQuery,
+    boolean nativeQuery
+  ) {
+    val builder = AnnotationSpec
+      .builder(Query.class)
+      .addMember("value", "$S", query)
+      .addMember("countQuery", "$S", countQuery);
+    if (nativeQuery) builder.addMember("nativeQuery", "true");
+    return builder.build();
+  }
+
+  private static ParameterSpec searchTermParameter() {
+    return ParameterSpec
+      .builder(String.class, "searchTerm")
+      .addAnnotation(
+        AnnotationSpec
+          .builder(Param.class)
+          .addMember("value", "$S", "searchTerm")
+          .build()
+      )
+      .build();
+  }
+
+  private NativeFreeTextSearchQueryFactory nativeQueryFactory() {
+    return new NativeFreeTextSearchQueryFactory(processingEnv);
+  }
+
+  private void writeIndexDdl(String ddl, Element[] originatingElements) {
+    try (
+      Writer writer = processingEnv
+        .getFiler()
+        .createResource(
+          StandardLocation.CLASS_OUTPUT,
+          "",
+          INDEX_DDL_RESOURCE,
+          originatingElements
+        )
+        .openWriter()
+    ) {
+      writer.write(ddl);
+    } catch (IOException e) {
+      processingEnv
+        .getMessager()
+        .printMessage(
+          Diagnostic.Kind.WARNING,
+          "Could not write " + INDEX_DDL_RESOURCE + ": " + e
+        );
+    }
+  }
+
   public static String freeTextSearchQuery(
     String entityName,
     List<String> searchFieldNames,
@@ -119,18 +310,27 @@ public class FreeTextSearchMethodsFactory {
     boolean selectCount
   ) {
     String placeHolder = DatafiStaticUtils.firstLowerCaseLetterOf(entityName);
-    String selectionPrefix = selectCount
-      ? "SELECT COUNT(" +
-      placeHolder +
-      ") FROM " +
-      entityName +
-      " " +
-      placeHolder
-      : "SELECT " + placeHolder + " FROM " + entityName + " " + placeHolder;
+    return freeTextSearchQuery(
+      entityName,
+      searchFieldNames,
+      isArchivable,
+      selectCount ? "COUNT(" + placeHolder + ")" : placeHolder
+    );
+  }
+
+  public static String freeTextSearchQuery(
+    String entityName,
+    List<String> searchFieldNames,
+    boolean isArchivable,
+    String selection
+  ) {
+    String placeHolder = DatafiStaticUtils.firstLowerCaseLetterOf(entityName);
+    String selectionPrefix =
+      "SELECT " + selection + " FROM " + entityName + " " + placeHolder;
     StringBuilder result = new StringBuilder(selectionPrefix);
     boolean isFirst = true;
     for (String fieldName : searchFieldNames) {
-      final String conditionPrefix = isFirst ? " WHERE" : " OR";
+      final String conditionPrefix = isFirst ? " WHERE (" : " OR";
       isFirst = false;
       val condition =
         " lower(" +
@@ -142,6 +342,7 @@ public class FreeTextSearchMethodsFactory {
       result.append(conditionPrefix);
       result.append(condition);
     }
+    result.append(")");
     if (isArchivable) result
       .append(" AND ")
       .append(placeHolder)
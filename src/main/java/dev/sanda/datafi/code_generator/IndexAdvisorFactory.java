@@ -0,0 +1,377 @@
+package dev.sanda.datafi.code_generator;
+
+import static dev.sanda.datafi.DatafiStaticUtils.*;
+
+import dev.sanda.datafi.annotations.finders.FindAllBy;
+import dev.sanda.datafi.annotations.finders.FindBy;
+import dev.sanda.datafi.annotations.finders.FindByUnique;
+import dev.sanda.datafi.annotations.free_text_search.FreeTextSearchDialect;
+import dev.sanda.datafi.annotations.free_text_search.WithFreeTextSearchByFields;
+import dev.sanda.datafi.annotations.query.WithNativeQuery;
+import dev.sanda.datafi.annotations.query.WithQuery;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import dev.sanda.datafi.code_generator.annotated_element_specs.FieldDalSpec;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Recommends indexes based on the columns each entity is looked up by - i.e.
+ * @FindBy, @FindAllBy and @FindByUnique fields, as well as the columns
+ * referenced within the WHERE clauses of @WithQuery / @WithNativeQuery queries.
+ * Writes a report, as well as the DDL of the recommended indexes (as plain SQL
+ * and as a liquibase changelog) into "META-INF/datafi/index-advisor/", and
+ * warns about finder columns which have no index declared via @Table(indexes).
+ */
+@RequiredArgsConstructor
+public class IndexAdvisorFactory {
+
+  public static final String OUTPUT_DIRECTORY =
+    "META-INF/datafi/index-advisor/";
+
+  private static final int MAX_INDEX_NAME_LENGTH = 63;
+  private static final Pattern WHERE_CLAUSE = Pattern.compile(
+    "\\bWHERE\\b(.*?)(\\bGROUP BY\\b|\\bORDER BY\\b|\\bLIMIT\\b|$)",
+    Pattern.CASE_INSENSITIVE | Pattern.DOTALL
+  );
+  private static final Pattern QUALIFIED_PATH = Pattern.compile(
+    "\\b[A-Za-z_][A-Za-z0-9_]*\\.([A-Za-z_][A-Za-z0-9_]*)\\b"
+  );
+
+  @NonNull
+  private final ProcessingEnvironment processingEnv;
+
+  public void adviseIndexes(List<EntityDalSpec> entityDalSpecs) {
+    val report = new StringBuilder();
+    val ddl = new StringBuilder();
+    val changelog = new StringBuilder(
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+      "<databaseChangeLog\n" +
+      "  xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\"\n" +
+      "  xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n" +
+      "  xsi:schemaLocation=\"http://www.liquibase.org/xml/ns/dbchangelog" +
+      " http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-3.8.xsd\">\n"
+    );
+    for (EntityDalSpec entityDalSpec : entityDalSpecs) {
+      val recommendations = recommendationsFor(entityDalSpec);
+      if (recommendations.isEmpty()) continue;
+      val entity = entityDalSpec.getElement();
+      val table = tableNameOf(entity);
+      val declaredIndexes = declaredIndexesOf(entity);
+      val isArchivable = isArchivable(entity, processingEnv);
+      report
+        .append(entityDalSpec.getSimpleName())
+        .append(" (")
+        .append(table)
+        .append(")\n");
+      for (IndexRecommendation recommendation : recommendations) {
+        val status = recommendation.status(declaredIndexes);
+        report
+          .append("  (")
+          .append(String.join(", ", recommendation.columns))
+          .append(") - ")
+          .append(recommendation.reason)
+          .append(": ")
+          .append(status)
+          .append("\n");
+        if (status != IndexStatus.MISSING) continue;
+        if (recommendation.finderField != null) processingEnv
+          .getMessager()
+          .printMessage(
+            Diagnostic.Kind.WARNING,
+            "No index declared via @Table(indexes = ...) for " +
+            entityDalSpec.getSimpleName() +
+            "." +
+            recommendation.finderField.getSimpleName() +
+            ", which is looked up by a generated finder. See " +
+            OUTPUT_DIRECTORY +
+            "recommended-indexes.sql",
+            recommendation.finderField
+          );
+        val indexName = indexNameOf(table, recommendation.columns);
+        val statement = createIndexStatement(
+          indexName,
+          table,
+          recommendation.columns,
+          isArchivable
+        );
+        ddl.append(statement).append("\n");
+        //for databases without partial index support
+        if (isArchivable) ddl
+          .append("-- or: ")
+          .append(
+            createIndexStatement(
+              indexName,
+              table,
+              withArchivedColumn(recommendation.columns),
+              false
+            )
+          )
+          .append("\n");
+        changelog
+          .append("  <changeSet id=\"")
+          .append(indexName)
+          .append("\" author=\"datafi\">\n")
+          .append("    <preConditions onFail=\"MARK_RAN\">\n")
+          .append("      <not><indexExists indexName=\"")
+          .append(indexName)
+          .append("\"/></not>\n")
+          .append("    </preConditions>\n")
+          .append("    <sql>")
+          .append(statement)
+          .append("</sql>\n")
+          .append("  </changeSet>\n");
+      }
+      if (isArchivable) report.append(
+        "  partial indexes exclude archived rows (isArchived = false)\n"
+      );
+      val freeTextSearch = entityDalSpec.getAnnotation(
+        WithFreeTextSearchByFields.class
+      );
+      if (
+        freeTextSearch != null &&
+        freeTextSearch.dialect() == FreeTextSearchDialect.PORTABLE
+      ) report
+        .append("  free text search on (")
+        .append(String.join(", ", freeTextSearch.value()))
+        .append(") uses LIKE '%term%', which cannot make use of a B-tree")
+        .append(" index - consider a native dialect\n");
+      report.append("\n");
+    }
+    if (report.length() == 0) return;
+    changelog.append("</databaseChangeLog>\n");
+    val originatingElements = entityDalSpecs
+      .stream()
+      .map(EntityDalSpec::getElement)
+      .toArray(Element[]::new);
+    writeResource("report.txt", report.toString(), originatingElements);
+    writeResource(
+      "recommended-indexes.sql",
+      ddl.toString(),
+      originatingElements
+    );
+    writeResource(
+      "recommended-indexes.changelog.xml",
+      changelog.toString(),
+      originatingElements
+    );
+  }
+
+  private List<IndexRecommendation> recommendationsFor(
+    EntityDalSpec entityDalSpec
+  ) {
+    val result = new LinkedHashMap<List<String>, IndexRecommendation>();
+    for (FieldDalSpec field : entityDalSpec.getFieldDalSpecs()) {
+      if (
+        !isAnnotatedAs(field, FindBy.class) &&
+        !isAnnotatedAs(field, FindAllBy.class) &&
+        !isAnnotatedAs(field, FindByUnique.class)
+      ) continue;
+      val columns = Collections.singletonList(columnNameOf(field.getElement()));
+      result.putIfAbsent(
+        columns,
+        new IndexRecommendation(
+          columns,
+          "looked up by a generated finder",
+          field.getElement(),
+          isUniqueOrId(field)
+        )
+      );
+    }
+    val entity = entityDalSpec.getElement();
+    val queries = new LinkedHashMap<String, String>();
+    entityDalSpec
+      .getAnnotationsByType(WithQuery.class)
+      .forEach(query -> queries.put(query.name(), query.jpql()));
+    entityDalSpec
+      .getAnnotationsByType(WithNativeQuery.class)
+      .forEach(query -> queries.put(query.name(), query.sql()));
+    queries.forEach(
+      (name, query) -> {
+        val columns = whereClauseColumnsOf(entity, query);
+        if (!columns.isEmpty()) result.putIfAbsent(
+          columns,
+          new IndexRecommendation(
+            columns,
+            "filtered on by custom query " + name,
+            null,
+            false
+          )
+        );
+      }
+    );
+    return new ArrayList<>(result.values());
+  }
+
+  //entity columns referenced as "x.field" within the WHERE clause, in order
+  private List<String> whereClauseColumnsOf(TypeElement entity, String query) {
+    val whereClause = WHERE_CLAUSE.matcher(query);
+    if (!whereClause.find()) return Collections.emptyList();
+    val columns = new LinkedHashSet<String>();
+    Matcher path = QUALIFIED_PATH.matcher(whereClause.group(1));
+    while (path.find()) {
+      val name = path.group(1);
+      val field = findField(entity, name);
+      if (field != null) columns.add(columnNameOf(field)); else if (
+        hasColumnNamed(entity, name)
+      ) columns.add(name);
+    }
+    return new ArrayList<>(columns);
+  }
+
+  private static boolean hasColumnNamed(TypeElement entity, String column) {
+    return getFieldsOf(entity)
+      .stream()
+      .anyMatch(field -> columnNameOf(field).equalsIgnoreCase(column));
+  }
+
+  private static List<List<String>> declaredIndexesOf(TypeElement entity) {
+    val table = entity.getAnnotation(Table.class);
+    if (table == null) return Collections.emptyList();
+    val result = new ArrayList<List<String>>();
+    for (Index index : table.indexes()) result.add(
+      Arrays
+        .stream(index.columnList().split(","))
+        .map(column -> column.trim().split("\\s+")[0].toLowerCase(Locale.ROOT))
+        .collect(Collectors.toList())
+    );
+    for (val uniqueConstraint : table.uniqueConstraints()) result.add(
+      Arrays
+        .stream(uniqueConstraint.columnNames())
+        .map(column -> column.toLowerCase(Locale.ROOT))
+        .collect(Collectors.toList())
+    );
+    return result;
+  }
+
+  private static String createIndexStatement(
+    String indexName,
+    String table,
+    List<String> columns,
+    boolean isPartial
+  ) {
+    return (
+      "CREATE INDEX " +
+      indexName +
+      " ON " +
+      table +
+      " (" +
+      String.join(", ", columns) +
+      ")" +
+      (isPartial ? " WHERE " + toSnakeCase("isArchived") + " = false" : "") +
+      ";"
+    );
+  }
+
+  private static List<String> withArchivedColumn(List<String> columns) {
+    val result = new ArrayList<String>(columns);
+    result.add(toSnakeCase("isArchived"));
+    return result;
+  }
+
+  private static String indexNameOf(String table, List<String> columns) {
+    val name =
+      "idx_" + table.replace('.', '_') + "_" + String.join("_", columns);
+    return name.length() > MAX_INDEX_NAME_LENGTH
+      ? name.substring(0, MAX_INDEX_NAME_LENGTH)
+      : name;
+  }
+
+  private static boolean isAnnotatedAs(
+    FieldDalSpec field,
+    Class<? extends Annotation> annotationType
+  ) {
+    return (
+      isDirectlyOrIndirectlyAnnotatedAs(field.getElement(), annotationType) ||
+      field.hasAnnotation(annotationType)
+    );
+  }
+
+  private static boolean isUniqueOrId(FieldDalSpec field) {
+    return (
+      (
+        field.hasAnnotation(Column.class) &&
+        field.getAnnotation(Column.class).unique()
+      ) ||
+      field.hasAnnotation(Id.class) ||
+      field.hasAnnotation(EmbeddedId.class)
+    );
+  }
+
+  private void writeResource(
+    String name,
+    String content,
+    Element[] originatingElements
+  ) {
+    try (
+      Writer writer = processingEnv
+        .getFiler()
+        .createResource(
+          StandardLocation.CLASS_OUTPUT,
+          "",
+          OUTPUT_DIRECTORY + name,
+          originatingElements
+        )
+        .openWriter()
+    ) {
+      writer.write(content);
+    } catch (IOException e) {
+      processingEnv
+        .getMessager()
+        .printMessage(
+          Diagnostic.Kind.WARNING,
+          "Could not write " + OUTPUT_DIRECTORY + name + ": " + e
+        );
+    }
+  }
+
+  private enum IndexStatus {
+    DECLARED,
+    IMPLIED_BY_UNIQUE_CONSTRAINT,
+    MISSING,
+  }
+
+  @RequiredArgsConstructor
+  private static class IndexRecommendation {
+
+    private final List<String> columns;
+    private final String reason;
+    private final Element finderField;
+    private final boolean isUniqueOrId;
+
+    //an index whose leading columns are the recommended ones suffices
+    private IndexStatus status(List<List<String>> declaredIndexes) {
+      if (isUniqueOrId) return IndexStatus.IMPLIED_BY_UNIQUE_CONSTRAINT;
+      val normalizedColumns = columns
+        .stream()
+        .map(column -> column.toLowerCase(Locale.ROOT))
+        .collect(Collectors.toList());
+      for (List<String> declaredIndex : declaredIndexes) {
+        if (
+          declaredIndex.size() >= normalizedColumns.size() &&
+          declaredIndex
+            .subList(0, normalizedColumns.size())
+            .equals(normalizedColumns)
+        ) return IndexStatus.DECLARED;
+      }
+      return IndexStatus.MISSING;
+    }
+  }
+}
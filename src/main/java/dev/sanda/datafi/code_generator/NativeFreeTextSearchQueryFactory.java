@@ -0,0 +1,280 @@
+package dev.sanda.datafi.code_generator;
+
+import static dev.sanda.datafi.DatafiStaticUtils.*;
+
+import dev.sanda.datafi.annotations.free_text_search.FreeTextSearchDialect;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Id;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Generates the native free text search queries - and the DDL of the full
+ * text indexes backing them - for each of the non portable dialects.
+ * Table and column names are resolved via {@link
+ * dev.sanda.datafi.DatafiStaticUtils#tableNameOf(TypeElement)} and {@link
+ * dev.sanda.datafi.DatafiStaticUtils#columnNameOf(VariableElement)}.
+ */
+@RequiredArgsConstructor
+public class NativeFreeTextSearchQueryFactory {
+
+  private static final String TEXT_SEARCH_CONFIG = "'simple'";
+
+  @NonNull
+  private final ProcessingEnvironment processingEnv;
+
+  /**
+   * @return the native search query, selecting the given selection - or null
+   * if any of the search fields could not be resolved.
+   */
+  public String searchQuery(
+    EntityDalSpec entityDalSpec,
+    List<String> searchFieldNames,
+    FreeTextSearchDialect dialect,
+    String selection
+  ) {
+    val entity = entityDalSpec.getElement();
+    val table = tableNameOf(entity);
+    val placeHolder = firstLowerCaseLetterOf(entityDalSpec.getSimpleName());
+    val columns = qualifiedColumnsOf(entity, searchFieldNames, placeHolder);
+    if (columns == null) return null;
+    val query = new StringBuilder("SELECT ")
+      .append(selection)
+      .append(" FROM ")
+      .append(table)
+      .append(" ")
+      .append(placeHolder);
+    switch (dialect) {
+      case POSTGRESQL:
+        query
+          .append(" WHERE (to_tsvector(")
+          .append(TEXT_SEARCH_CONFIG)
+          .append(", ")
+          .append(documentOf(columns))
+          .append(") @@ plainto_tsquery(")
+          .append(TEXT_SEARCH_CONFIG)
+          .append(", :searchTerm))");
+        break;
+      case POSTGRESQL_TRIGRAM:
+        query
+          .append(" WHERE (")
+          .append(
+            columns
+              .stream()
+              .map(
+                column ->
+                  "lower(" +
+                  column +
+                  ") LIKE lower(concat('%', :searchTerm, '%'))"
+              )
+              .collect(Collectors.joining(" OR "))
+          )
+          .append(")");
+        break;
+      case MYSQL:
+        query
+          .append(" WHERE (MATCH (")
+          .append(String.join(", ", columns))
+          .append(") AGAINST (:searchTerm IN NATURAL LANGUAGE MODE))");
+        break;
+      case H2:
+        val idColumn = idColumnOf(entity);
+        if (idColumn == null) return null;
+        query
+          .append(" JOIN FT_SEARCH_DATA(:searchTerm, 0, 0) ft ON ")
+          .append(placeHolder)
+          .append(".")
+          .append(idColumn)
+          .append(" = ARRAY_GET(ft.KEYS, 1) WHERE (ft.\"TABLE\" = '")
+          .append(unqualifiedTableNameOf(entity).toUpperCase(Locale.ROOT))
+          .append("')");
+        break;
+      default:
+        throw new IllegalArgumentException(
+          dialect + " is not a native free text search dialect"
+        );
+    }
+    if (isArchivable(entity, processingEnv)) query
+      .append(" AND ")
+      .append(placeHolder)
+      .append(".")
+      .append(toSnakeCase("isArchived"))
+      .append(" = false");
+    return query.toString();
+  }
+
+  /**
+   * @return a select clause of the projected fields' columns, aliased by
+   * field name such that the results can be backed by a projection interface.
+   */
+  public String selectionOf(
+    EntityDalSpec entityDalSpec,
+    List<String> projectedFieldNames
+  ) {
+    val placeHolder = firstLowerCaseLetterOf(entityDalSpec.getSimpleName());
+    val columns = qualifiedColumnsOf(
+      entityDalSpec.getElement(),
+      projectedFieldNames,
+      placeHolder
+    );
+    if (columns == null) return null;
+    val result = new ArrayList<String>();
+    for (int i = 0; i < columns.size(); i++) result.add(
+      columns.get(i) + " AS " + projectedFieldNames.get(i)
+    );
+    return String.join(", ", result);
+  }
+
+  /**
+   * @return the DDL of the index(es) backing the native search query.
+   */
+  public String indexDdl(
+    EntityDalSpec entityDalSpec,
+    List<String> searchFieldNames,
+    FreeTextSearchDialect dialect
+  ) {
+    val entity = entityDalSpec.getElement();
+    val table = tableNameOf(entity);
+    val indexPrefix = unqualifiedTableNameOf(entity);
+    val columns = qualifiedColumnsOf(entity, searchFieldNames, null);
+    if (columns == null) return null;
+    val ddl = new StringBuilder(
+      "-- " + entityDalSpec.getSimpleName() + " (" + dialect + ")\n"
+    );
+    switch (dialect) {
+      case POSTGRESQL:
+        ddl
+          .append("CREATE INDEX IF NOT EXISTS ")
+          .append(indexPrefix)
+          .append("_fts_idx ON ")
+          .append(table)
+          .append(" USING GIN (to_tsvector(")
+          .append(TEXT_SEARCH_CONFIG)
+          .append(", ")
+          .append(documentOf(columns))
+          .append("));\n");
+        break;
+      case POSTGRESQL_TRIGRAM:
+        ddl.append("CREATE EXTENSION IF NOT EXISTS pg_trgm;\n");
+        for (String column : columns) ddl
+          .append("CREATE INDEX IF NOT EXISTS ")
+          .append(indexPrefix)
+          .append("_")
+          .append(column)
+          .append("_trgm_idx ON ")
+          .append(table)
+          .append(" USING GIN (lower(")
+          .append(column)
+          .append(") gin_trgm_ops);\n");
+        break;
+      case MYSQL:
+        ddl
+          .append("CREATE FULLTEXT INDEX ")
+          .append(indexPrefix)
+          .append("_fts_idx ON ")
+          .append(table)
+          .append(" (")
+          .append(String.join(", ", columns))
+          .append(");\n");
+        break;
+      case H2:
+        val schema = schemaNameOf(entity);
+        ddl
+          .append(
+            "CREATE ALIAS IF NOT EXISTS FT_INIT FOR \"org.h2.fulltext.FullText.init\";\n"
+          )
+          .append("CALL FT_INIT();\n")
+          .append("CALL FT_CREATE_INDEX('")
+          .append(schema.isEmpty() ? "PUBLIC" : schema.toUpperCase(Locale.ROOT))
+          .append("', '")
+          .append(indexPrefix.toUpperCase(Locale.ROOT))
+          .append("', '")
+          .append(String.join(",", columns).toUpperCase(Locale.ROOT))
+          .append("');\n");
+        break;
+      default:
+        return null;
+    }
+    return ddl.toString();
+  }
+
+  private List<String> qualifiedColumnsOf(
+    TypeElement entity,
+    List<String> fieldNames,
+    String placeHolder
+  ) {
+    val result = new ArrayList<String>();
+    for (String fieldName : fieldNames) {
+      val field = findField(entity, fieldName);
+      if (field == null) {
+        logCompilationError(
+          processingEnv,
+          entity,
+          "Invalid free text search field '" +
+          fieldName +
+          "': " +
+          entity.getSimpleName() +
+          " has no such field"
+        );
+        return null;
+      }
+      val column = columnNameOf(field);
+      result.add(placeHolder != null ? placeHolder + "." + column : column);
+    }
+    return result;
+  }
+
+  private static String documentOf(List<String> columns) {
+    return columns
+      .stream()
+      .map(column -> "coalesce(" + column + ", '')")
+      .collect(Collectors.joining(" || ' ' || "));
+  }
+
+  private String idColumnOf(TypeElement entity) {
+    for (
+      TypeElement current = entity;
+      current != null;
+      current = superclassOf(current)
+    ) {
+      for (VariableElement field : getFieldsOf(current)) {
+        if (field.getAnnotation(Id.class) != null) return columnNameOf(field);
+        //e.g. SimpleId, in which case the id column is that of its single field
+        if (
+          field.getAnnotation(EmbeddedId.class) != null &&
+          field.asType().getKind() == TypeKind.DECLARED
+        ) {
+          val embeddable = (TypeElement) (
+            (DeclaredType) field.asType()
+          ).asElement();
+          for (Element embeddedField : embeddable.getEnclosedElements()) {
+            if (
+              embeddedField.getKind() == ElementKind.FIELD &&
+              !embeddedField.getModifiers().contains(Modifier.STATIC)
+            ) return columnNameOf((VariableElement) embeddedField);
+          }
+        }
+      }
+    }
+    logCompilationError(
+      processingEnv,
+      entity,
+      "Could not resolve the id column required for H2 free text search"
+    );
+    return null;
+  }
+}
@@ -0,0 +1,130 @@
+package dev.sanda.datafi.code_generator;
+
+import static dev.sanda.datafi.DatafiStaticUtils.*;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import dev.sanda.datafi.annotations.projections.GeneratedProjection;
+import dev.sanda.datafi.annotations.projections.WithProjection;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Generates an interface for each projection declared via @WithProjection,
+ * and provides the naming and selection conventions used by the
+ * generated "...As[projection name]" finder methods.
+ */
+@RequiredArgsConstructor
+public class ProjectionFactory {
+
+  @NonNull
+  private final ProcessingEnvironment processingEnv;
+
+  public void generateProjections(List<EntityDalSpec> entityDalSpecs) {
+    for (EntityDalSpec entityDalSpec : entityDalSpecs) {
+      for (WithProjection projection : entityDalSpec.getAnnotationsByType(
+        WithProjection.class
+      )) generateProjection(entityDalSpec, projection);
+    }
+  }
+
+  private void generateProjection(
+    EntityDalSpec entityDalSpec,
+    WithProjection projection
+  ) {
+    val entity = entityDalSpec.getElement();
+    val entityType = (DeclaredType) entity.asType();
+    val projectionType = projectionTypeOf(entityDalSpec, projection);
+    val builder = TypeSpec
+      .interfaceBuilder(projectionType)
+      .addOriginatingElement(entity)
+      .addModifiers(Modifier.PUBLIC)
+      .addAnnotation(
+        AnnotationSpec
+          .builder(GeneratedProjection.class)
+          .addMember("entity", "$T.class", entity)
+          .addMember("name", "$S", projection.name())
+          .build()
+      );
+    for (String fieldName : projection.fields()) {
+      val field = findField(entity, fieldName);
+      if (field == null) {
+        logCompilationError(
+          processingEnv,
+          entity,
+          "Invalid field '" +
+          fieldName +
+          "' in projection '" +
+          projection.name() +
+          "': " +
+          entityDalSpec.getSimpleName() +
+          " has no such field"
+        );
+        return;
+      }
+      builder.addMethod(
+        MethodSpec
+          .methodBuilder("get" + toPascalCase(fieldName))
+          .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+          .returns(
+            TypeName.get(
+              processingEnv.getTypeUtils().asMemberOf(entityType, field)
+            )
+          )
+          .build()
+      );
+    }
+    writeToJavaFile(
+      entityDalSpec.getSimpleName(),
+      projectionType.packageName(),
+      builder,
+      processingEnv,
+      "projection"
+    );
+  }
+
+  public static ClassName projectionTypeOf(
+    EntityDalSpec entityDalSpec,
+    WithProjection projection
+  ) {
+    return ClassName.get(
+      packageNameOf(entityDalSpec.getElement()),
+      entityDalSpec.getSimpleName() + toPascalCase(projection.name())
+    );
+  }
+
+  public static String methodSuffixOf(WithProjection projection) {
+    return "As" + toPascalCase(projection.name());
+  }
+
+  /**
+   * @return a JPQL select clause of the projected fields, aliased by field name
+   * such that the results can be backed by the generated projection interface.
+   */
+  public static String selectionOf(
+    String placeHolder,
+    WithProjection projection
+  ) {
+    return Arrays
+      .stream(projection.fields())
+      .map(field -> placeHolder + "." + field + " AS " + field)
+      .collect(Collectors.joining(", "));
+  }
+
+  private static String packageNameOf(TypeElement entity) {
+    val qualifiedName = entity.getQualifiedName().toString();
+    return qualifiedName.substring(0, qualifiedName.lastIndexOf('.'));
+  }
+}
@@ -4,7 +4,9 @@ import static dev.sanda.datafi.DatafiStaticUtils.*;
 
 import com.squareup.javapoet.TypeName;
 import dev.sanda.datafi.annotations.attributes.NonApiUpdatables;
+import dev.sanda.datafi.annotations.fetch_plans.WithFetchPlan;
 import dev.sanda.datafi.annotations.free_text_search.WithFreeTextSearchByFields;
+import dev.sanda.datafi.annotations.projections.WithProjection;
 import dev.sanda.datafi.annotations.query.WithNativeQuery;
 import dev.sanda.datafi.annotations.query.WithQuery;
 import dev.sanda.datafi.annotations.query.WithQueryScripts;
@@ -23,6 +25,9 @@ public class EntityDalSpec extends AnnotatedElementSpec<TypeElement> {
   @Getter
   private List<FieldDalSpec> fieldDalSpecs;
 
+  @Getter
+  private final TypeElement entityApiSpec;
+
   public Map<String, TypeName> getEntityFieldTypes() {
     return fieldDalSpecs
       .stream()
@@ -36,6 +41,7 @@ public class EntityDalSpec extends AnnotatedElementSpec<TypeElement> {
 
   public EntityDalSpec(TypeElement entity, TypeElement entityApiSpec) {
     super(entity);
+    this.entityApiSpec = entityApiSpec;
     if (entityApiSpec != null) addAnnotations(entityApiSpec);
     setFieldSpecs(entityApiSpec);
   }
@@ -69,7 +75,9 @@ public class EntityDalSpec extends AnnotatedElementSpec<TypeElement> {
   protected <A extends Annotation> Class<A>[] targetAnnotations() {
     return new Class[] {
       NonApiUpdatables.class,
+      WithFetchPlan.class,
       WithFreeTextSearchByFields.class,
+      WithProjection.class,
       WithNativeQuery.class,
       WithQuery.class,
       WithQueryScripts.class,
@@ -5,8 +5,12 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.lang.model.element.TypeElement;
 import lombok.Data;
+import lombok.val;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
 
 @Data
@@ -15,42 +19,59 @@ public class CustomSQLQuery {
   private TypeElement annotatedEntity;
   private String name;
   private String sql;
+  private String countQuery;
   private boolean isNative = false;
+  //the DTO rows are mapped onto via JDBC, if any
+  private TypeElement jdbcDtoType;
   private LinkedHashMap<String, TypeName> args = new LinkedHashMap<>();
   private ReturnPlurality returnPlurality;
 
   public TypeName returnSignature() {
-    TypeName returnType = isDtoReturnType()
-      ? resolveDtoType()
-      : ClassName.get(annotatedEntity);
+    TypeName returnType = jdbcDtoType != null
+      ? ClassName.get(jdbcDtoType)
+      : isDtoReturnType() ? resolveDtoType() : ClassName.get(annotatedEntity);
     switch (returnPlurality) {
       case SINGLE:
         return returnType;
       case BATCH:
         return ParameterizedTypeName.get(ClassName.get(List.class), returnType);
+      case MODIFYING:
+        //the number of affected rows
+        return TypeName.INT;
+      case PAGE:
+        return ParameterizedTypeName.get(ClassName.get(Page.class), returnType);
+      case STREAM:
+        return ParameterizedTypeName.get(
+          ClassName.get(Stream.class),
+          returnType
+        );
       default:
         return null;
     }
   }
 
-  private TypeName resolveDtoType() {
+  public TypeName resolveDtoType() {
     final String dtoName = sql.split(" ")[2];
     String canonicalDtoClassName = dtoName.substring(0, dtoName.indexOf("("));
     return ClassName.bestGuess(canonicalDtoClassName);
   }
 
-  private boolean isDtoReturnType() {
+  public boolean isDtoReturnType() {
     return sql
       .toUpperCase()
       .matches("^SELECT NEW [A-Z][A-Z0-9_]*(\\.[A-Z0-9_]+)+[0-9A-Z_].+");
   }
 
   public List<ParameterSpec> parameterSpecs() {
-    return args
+    val result = args
       .entrySet()
       .stream()
       .map(this::queryParam)
       .collect(Collectors.toList());
+    if (returnPlurality == ReturnPlurality.PAGE) result.add(
+      ParameterSpec.builder(Pageable.class, "pageable").build()
+    );
+    return result;
   }
 
   private ParameterSpec queryParam(Map.Entry<String, TypeName> arg) {
@@ -1,8 +1,11 @@
 package dev.sanda.datafi.code_generator.query;
 
 import static com.google.common.collect.Maps.immutableEntry;
+import static dev.sanda.datafi.DatafiStaticUtils.sliceVariantOf;
 
 import com.squareup.javapoet.*;
+import dev.sanda.datafi.annotations.query.DtoSortKeys;
+import dev.sanda.datafi.annotations.query.ReturnMode;
 import dev.sanda.datafi.annotations.query.WithNativeQuery;
 import dev.sanda.datafi.annotations.query.WithNativeQueryScripts;
 import dev.sanda.datafi.annotations.query.WithQuery;
@@ -15,8 +18,14 @@ import java.util.*;
 import java.util.regex.Pattern;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.persistence.QueryHint;
 import javax.tools.Diagnostic;
 import javax.tools.FileObject;
 import javax.tools.StandardLocation;
@@ -24,12 +33,22 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.FileCopyUtils;
 
 @RequiredArgsConstructor
 public class CustomSQLQueryFactory {
 
+  private static final String STREAM_FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+  private static final String STREAM_FETCH_SIZE = "500";
+  private static final Pattern PATH_PATTERN = Pattern.compile(
+    "[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)*"
+  );
+
   @NonNull
   private final ProcessingEnvironment env;
 
@@ -37,13 +56,26 @@ public class CustomSQLQueryFactory {
     List<EntityDalSpec> entityDalSpecs
   ) {
     Map<TypeElement, List<MethodSpec>> customQueriesMap = new HashMap<>();
+    val jdbcQueriesFactory = new JdbcQueriesFactory(env);
     for (val entitySpec : entityDalSpecs) {
       List<CustomSQLQuery> customQueries = getCustomSQLQueries(entitySpec);
       List<MethodSpec> customQueriesMethodSpecs = new ArrayList<>();
+      List<CustomSQLQuery> jdbcQueries = new ArrayList<>();
       for (CustomSQLQuery query : customQueries) {
-        customQueriesMethodSpecs.add(generateCustomQueryMethod(query));
+        if (query.getJdbcDtoType() != null) jdbcQueries.add(query); else {
+          val method = generateCustomQueryMethod(query);
+          customQueriesMethodSpecs.add(method);
+          //for reading the chunks of fetchAll pages
+          if (
+            query.getReturnPlurality() == ReturnPlurality.PAGE
+          ) customQueriesMethodSpecs.add(sliceVariantOf(method));
+        }
       }
       customQueriesMap.put(entitySpec.getElement(), customQueriesMethodSpecs);
+      if (!jdbcQueries.isEmpty()) jdbcQueriesFactory.generateJdbcQueries(
+        entitySpec,
+        jdbcQueries
+      );
     }
     return customQueriesMap;
   }
@@ -57,15 +89,134 @@ public class CustomSQLQueryFactory {
       "$L",
       true
     );
-    return MethodSpec
+    if (
+      query.getReturnPlurality() == ReturnPlurality.PAGE
+    ) queryAnnotationBuilder.addMember(
+      "countQuery",
+      "$S",
+      query.getCountQuery() != null
+        ? query.getCountQuery()
+        : QueryUtils.createCountQueryFor(query.getSql())
+    );
+    val builder = MethodSpec
       .methodBuilder(query.getName())
       .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-      .addAnnotation(queryAnnotationBuilder.build())
+      .addAnnotation(queryAnnotationBuilder.build());
+    if (
+      query.getReturnPlurality() == ReturnPlurality.PAGE &&
+      query.isDtoReturnType()
+    ) builder.addAnnotation(dtoSortKeysOf(query));
+    //bulk updates bypass the persistence context, so flush and clear it
+    if (query.getReturnPlurality() == ReturnPlurality.MODIFYING) builder
+      .addAnnotation(
+        AnnotationSpec
+          .builder(Modifying.class)
+          .addMember("flushAutomatically", "$L", true)
+          .addMember("clearAutomatically", "$L", true)
+          .build()
+      )
+      .addAnnotation(Transactional.class);
+    //without a fetch size, most drivers load the entire result set up front
+    if (
+      query.getReturnPlurality() == ReturnPlurality.STREAM
+    ) builder.addAnnotation(
+      AnnotationSpec
+        .builder(QueryHints.class)
+        .addMember(
+          "value",
+          "$L",
+          AnnotationSpec
+            .builder(QueryHint.class)
+            .addMember("name", "$S", STREAM_FETCH_SIZE_HINT)
+            .addMember("value", "$S", STREAM_FETCH_SIZE)
+            .build()
+        )
+        .build()
+    );
+    return builder
       .addParameters(query.parameterSpecs())
       .returns(query.returnSignature())
       .build();
   }
 
+  private AnnotationSpec dtoSortKeysOf(CustomSQLQuery query) {
+    val sql = query.getSql();
+    val rootAlias = QueryUtils.detectAlias(sql);
+    val selectStart = sql.indexOf('(') + 1;
+    val selectExpressions = splitTopLevel(
+      sql.substring(selectStart, closingParenthesisOf(sql, selectStart))
+    );
+    val properties = new ArrayList<CodeBlock>();
+    val paths = new ArrayList<CodeBlock>();
+    val constructor = dtoConstructorOf(query, selectExpressions.size());
+    for (int i = 0; constructor != null && i < selectExpressions.size(); i++) {
+      String path = selectExpressions.get(i).trim();
+      if (
+        !PATH_PATTERN.matcher(path).matches() || path.equals(rootAlias)
+      ) continue;
+      //spring qualifies unqualified sort properties with the root alias
+      if (
+        rootAlias != null && path.startsWith(rootAlias + ".")
+      ) path = path.substring(rootAlias.length() + 1);
+      properties.add(
+        CodeBlock.of(
+          "$S",
+          constructor.getParameters().get(i).getSimpleName().toString()
+        )
+      );
+      paths.add(CodeBlock.of("$S", path));
+    }
+    return AnnotationSpec
+      .builder(DtoSortKeys.class)
+      .addMember("properties", "{$L}", CodeBlock.join(properties, ", "))
+      .addMember("paths", "{$L}", CodeBlock.join(paths, ", "))
+      .build();
+  }
+
+  private ExecutableElement dtoConstructorOf(
+    CustomSQLQuery query,
+    int parameterCount
+  ) {
+    val dtoName = ((ClassName) query.resolveDtoType()).canonicalName();
+    val dto = env.getElementUtils().getTypeElement(dtoName);
+    if (dto == null) return null;
+    return dto
+      .getEnclosedElements()
+      .stream()
+      .filter(e -> e.getKind() == ElementKind.CONSTRUCTOR)
+      .map(e -> (ExecutableElement) e)
+      .filter(e -> e.getParameters().size() == parameterCount)
+      .findFirst()
+      .orElse(null);
+  }
+
+  private static int closingParenthesisOf(String sql, int from) {
+    int depth = 1;
+    for (int i = from; i < sql.length(); i++) {
+      if (sql.charAt(i) == '(') depth++; else if (
+        sql.charAt(i) == ')' && --depth == 0
+      ) return i;
+    }
+    return sql.length();
+  }
+
+  private static List<String> splitTopLevel(String expressions) {
+    val result = new ArrayList<String>();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i < expressions.length(); i++) {
+      final char c = expressions.charAt(i);
+      if (c == '(') depth++; else if (c == ')') depth--; else if (
+        c == ',' && depth == 0
+      ) {
+        result.add(expressions.substring(start, i));
+        start = i + 1;
+      }
+    }
+    result.add(expressions.substring(start));
+    return result;
+  }
+
   private List<CustomSQLQuery> getCustomSQLQueries(
     EntityDalSpec entityDalSpec
   ) {
@@ -82,16 +233,29 @@ public class CustomSQLQueryFactory {
     if (!individualQueries.isEmpty()) {
       for (WithQuery query : individualQueries) {
         customSQLQueries.add(
-          parseQuery(query.name(), query.jpql(), entityDalSpec)
+          parseQuery(
+            query.name(),
+            query.jpql(),
+            query.returns(),
+            query.countQuery(),
+            entityDalSpec
+          )
         );
       }
     }
 
     if (individualNativeQueries != null) {
       for (WithNativeQuery query : individualNativeQueries) {
-        customSQLQueries.add(
-          parseIndividualNativeQuery(query.name(), query.sql(), entityDalSpec)
+        CustomSQLQuery customSQLQuery = parseQuery(
+          query.name(),
+          query.sql(),
+          query.returns(),
+          query.countQuery(),
+          entityDalSpec
         );
+        customSQLQuery.setNative(true);
+        customSQLQuery.setJdbcDtoType(mapToTypeOf(query));
+        customSQLQueries.add(customSQLQuery);
       }
     }
 
@@ -109,6 +273,19 @@ public class CustomSQLQueryFactory {
     return customSQLQueries;
   }
 
+  private TypeElement mapToTypeOf(WithNativeQuery query) {
+    TypeMirror mapTo;
+    try {
+      query.mapTo();
+      return null;
+    } catch (MirroredTypeException e) {
+      mapTo = e.getTypeMirror();
+    }
+    return mapTo.getKind() == TypeKind.DECLARED
+      ? (TypeElement) env.getTypeUtils().asElement(mapTo)
+      : null;
+  }
+
   private CustomSQLQuery parseQueryScript(
     String path,
     EntityDalSpec entityDalSpec
@@ -143,19 +320,19 @@ public class CustomSQLQueryFactory {
     }
   }
 
-  private CustomSQLQuery parseIndividualNativeQuery(
+  private CustomSQLQuery parseQuery(
     String name,
     String sql,
-    EntityDalSpec entityDalSpec
+    EntityDalSpec entity
   ) {
-    CustomSQLQuery customSQLQuery = parseQuery(name, sql, entityDalSpec);
-    customSQLQuery.setNative(true);
-    return customSQLQuery;
+    return parseQuery(name, sql, ReturnMode.AUTO, "", entity);
   }
 
   private CustomSQLQuery parseQuery(
     String name,
     String sql,
+    ReturnMode returnMode,
+    String countQuery,
     EntityDalSpec entity
   ) {
     CustomSQLQuery customSQLQuery = new CustomSQLQuery();
@@ -163,12 +340,58 @@ public class CustomSQLQueryFactory {
     customSQLQuery.setName(formatAndValidateName(name));
     String sqlString = parseSqlString(sql, customSQLQuery.getArgs(), entity);
     customSQLQuery.setSql(sqlString);
-    customSQLQuery.setReturnPlurality(determineSQLReturnSignature(sqlString));
+    //the modifying annotations are only generated for AUTO return modes
+    if (
+      returnMode != ReturnMode.AUTO &&
+      determineSQLReturnSignature(sqlString) == ReturnPlurality.MODIFYING
+    ) compilationFailureWithMessage(
+      "Query '" +
+      name +
+      "' is an UPDATE or DELETE statement, and hence must not declare a " +
+      "return mode other than ReturnMode.AUTO",
+      env
+    );
+    customSQLQuery.setReturnPlurality(
+      returnMode == ReturnMode.AUTO
+        ? determineSQLReturnSignature(sqlString)
+        : toReturnPlurality(returnMode)
+    );
+    if (!countQuery.trim().isEmpty()) {
+      //count query args must be a subset of those of the query itself
+      val countArgs = new LinkedHashMap<>(customSQLQuery.getArgs());
+      customSQLQuery.setCountQuery(
+        parseSqlString(countQuery, countArgs, entity)
+      );
+      countArgs.keySet().removeAll(customSQLQuery.getArgs().keySet());
+      if (!countArgs.isEmpty()) compilationFailureWithMessage(
+        "The count query of '" +
+        name +
+        "' declares sql arguments which the query itself does not: " +
+        String.join(", ", countArgs.keySet()),
+        env
+      );
+    }
     return customSQLQuery;
   }
 
+  private static ReturnPlurality toReturnPlurality(ReturnMode returnMode) {
+    switch (returnMode) {
+      case SINGLE:
+        return ReturnPlurality.SINGLE;
+      case PAGE:
+        return ReturnPlurality.PAGE;
+      case STREAM:
+        return ReturnPlurality.STREAM;
+      default:
+        return ReturnPlurality.BATCH;
+    }
+  }
+
   private ReturnPlurality determineSQLReturnSignature(String sqlString) {
     final String[] sql = sqlString.toUpperCase().split(" ");
+    if (
+      sql[0].equals("UPDATE") || sql[0].equals("DELETE")
+    ) return ReturnPlurality.MODIFYING;
     boolean isUnique =
       (sql[sql.length - 2] + " " + sql[sql.length - 1]).equals("LIMIT 1") ||
       sql[0].equals("INSERT") ||
@@ -222,12 +445,6 @@ public class CustomSQLQueryFactory {
       .replaceAll("'", "");
     TypeName argType;
     if (lexeme.contains("::")) {
-      if (argsSoFar.containsKey(argName)) {
-        compilationFailureWithMessage(
-          "sql argument name collision: " + argName,
-          env
-        );
-      }
       String typeNameString = lexeme.substring(0, lexeme.indexOf(":"));
       argType = resolvePrimitiveType(typeNameString);
       if (argType == null) {
@@ -239,6 +456,16 @@ public class CustomSQLQueryFactory {
           env
         );
       }
+      //redeclaring an argument with the same type refers to the same argument
+      if (
+        argsSoFar.containsKey(argName) &&
+        !Objects.equals(argsSoFar.get(argName), argType)
+      ) {
+        compilationFailureWithMessage(
+          "sql argument name collision: " + argName,
+          env
+        );
+      }
     } else {
       argType = entityFields.get(argName);
       if (argType == null) argType = argsSoFar.get(argName);
@@ -0,0 +1,325 @@
+package dev.sanda.datafi.code_generator.query;
+
+import static dev.sanda.datafi.DatafiStaticUtils.*;
+
+import com.squareup.javapoet.*;
+import dev.sanda.datafi.code_generator.annotated_element_specs.EntityDalSpec;
+import dev.sanda.datafi.persistence.SimpleId;
+import dev.sanda.datafi.persistence.jdbc.JdbcQueries;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.persistence.EntityManager;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.PersistenceContext;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates a {@link JdbcQueries} implementation for the native custom queries
+ * of an entity which map their rows onto a DTO. Each query gets a row mapper
+ * invoking the DTO's constructor with the result set's columns in order, such
+ * that no entities are hydrated nor tracked by the persistence context.
+ * Pending changes are flushed beforehand, as hibernate's auto flush only
+ * applies to queries run through the entity manager.
+ */
+@RequiredArgsConstructor
+public class JdbcQueriesFactory {
+
+  private static final Map<String, String> RESULT_SET_GETTERS = new HashMap<>();
+
+  static {
+    RESULT_SET_GETTERS.put("int", "getInt");
+    RESULT_SET_GETTERS.put("long", "getLong");
+    RESULT_SET_GETTERS.put("short", "getShort");
+    RESULT_SET_GETTERS.put("byte", "getByte");
+    RESULT_SET_GETTERS.put("double", "getDouble");
+    RESULT_SET_GETTERS.put("float", "getFloat");
+    RESULT_SET_GETTERS.put("boolean", "getBoolean");
+    RESULT_SET_GETTERS.put(String.class.getName(), "getString");
+    RESULT_SET_GETTERS.put(BigDecimal.class.getName(), "getBigDecimal");
+  }
+
+  @NonNull
+  private final ProcessingEnvironment env;
+
+  public void generateJdbcQueries(
+    EntityDalSpec entityDalSpec,
+    List<CustomSQLQuery> queries
+  ) {
+    val entity = entityDalSpec.getElement();
+    val entityType = ClassName.get(entity);
+    val builder = TypeSpec
+      .classBuilder(entityDalSpec.getSimpleName() + "JdbcQueries")
+      .addOriginatingElement(entity)
+      .addModifiers(Modifier.PUBLIC)
+      .addAnnotation(Component.class)
+      .addSuperinterface(
+        ParameterizedTypeName.get(ClassName.get(JdbcQueries.class), entityType)
+      )
+      .addField(
+        FieldSpec
+          .builder(NamedParameterJdbcTemplate.class, "jdbcTemplate")
+          .addModifiers(Modifier.PRIVATE)
+          .addAnnotation(Autowired.class)
+          .build()
+      )
+      .addField(
+        FieldSpec
+          .builder(EntityManager.class, "entityManager")
+          .addModifiers(Modifier.PRIVATE)
+          .addAnnotation(PersistenceContext.class)
+          .build()
+      );
+    val queryNames = new ArrayList<String>();
+    for (CustomSQLQuery query : queries) {
+      if (!isValid(query, entityDalSpec)) continue;
+      val rowMapper = constructorCallOf(query.getJdbcDtoType(), entityDalSpec);
+      if (rowMapper == null) continue;
+      val constantPrefix = toSnakeCase(query.getName()).toUpperCase();
+      val dtoType = ClassName.get(query.getJdbcDtoType());
+      builder
+        .addField(
+          FieldSpec
+            .builder(
+              String.class,
+              constantPrefix + "_SQL",
+              Modifier.PRIVATE,
+              Modifier.STATIC,
+              Modifier.FINAL
+            )
+            .initializer("$S", query.getSql())
+            .build()
+        )
+        .addField(
+          FieldSpec
+            .builder(
+              ParameterizedTypeName.get(
+                ClassName.get(RowMapper.class),
+                dtoType
+              ),
+              constantPrefix + "_ROW_MAPPER",
+              Modifier.PRIVATE,
+              Modifier.STATIC,
+              Modifier.FINAL
+            )
+            .initializer("(resultSet, rowNum) -> $L", rowMapper)
+            .build()
+        )
+        .addMethod(queryMethod(query, constantPrefix, entityDalSpec));
+      queryNames.add(query.getName());
+    }
+    builder
+      .addField(
+        FieldSpec
+          .builder(
+            ParameterizedTypeName.get(Set.class, String.class),
+            "QUERY_NAMES",
+            Modifier.PRIVATE,
+            Modifier.STATIC,
+            Modifier.FINAL
+          )
+          .initializer(
+            "$T.unmodifiableSet(new $T<>($T.asList($L)))",
+            Collections.class,
+            HashSet.class,
+            Arrays.class,
+            queryNames
+              .stream()
+              .map(name -> CodeBlock.of("$S", name).toString())
+              .collect(Collectors.joining(", "))
+          )
+          .build()
+      )
+      .addMethod(
+        MethodSpec
+          .methodBuilder("getEntityType")
+          .addAnnotation(Override.class)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(
+            ParameterizedTypeName.get(ClassName.get(Class.class), entityType)
+          )
+          .addStatement("return $T.class", entityType)
+          .build()
+      )
+      .addMethod(
+        MethodSpec
+          .methodBuilder("getQueryNames")
+          .addAnnotation(Override.class)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(ParameterizedTypeName.get(Set.class, String.class))
+          .addStatement("return QUERY_NAMES")
+          .build()
+      );
+    writeToJavaFile(
+      entityDalSpec.getSimpleName(),
+      entityType.packageName(),
+      builder,
+      env,
+      "jdbc queries"
+    );
+  }
+
+  private boolean isValid(CustomSQLQuery query, EntityDalSpec entityDalSpec) {
+    val plurality = query.getReturnPlurality();
+    if (
+      plurality == ReturnPlurality.SINGLE || plurality == ReturnPlurality.BATCH
+    ) return true;
+    logCompilationError(
+      env,
+      entityDalSpec.getElement(),
+      "Native query '" +
+      query.getName() +
+      "' maps its rows onto a DTO, and hence must return either a single " +
+      "row or a list of rows"
+    );
+    return false;
+  }
+
+  /**
+   * @return the value to bind the given argument as - i.e. the wrapped long of
+   * a SimpleId, and an enum's name or ordinal, as per the entity's mapping of
+   * fields of that enum type.
+   */
+  private CodeBlock parameterValueOf(
+    String name,
+    TypeName type,
+    EntityDalSpec entityDalSpec
+  ) {
+    if (type.equals(ClassName.get(SimpleId.class))) return CodeBlock.of(
+      "$L != null ? $L.getId() : null",
+      name,
+      name
+    );
+    if (!(type instanceof ClassName)) return CodeBlock.of("$L", name);
+    val typeElement = env
+      .getElementUtils()
+      .getTypeElement(((ClassName) type).canonicalName());
+    if (
+      typeElement == null || typeElement.getKind() != ElementKind.ENUM
+    ) return CodeBlock.of("$L", name);
+    return CodeBlock.of(
+      "$L != null ? $L.$L() : null",
+      name,
+      name,
+      isMappedByName(typeElement, entityDalSpec) ? "name" : "ordinal"
+    );
+  }
+
+  private boolean isMappedByName(TypeElement enumType, EntityDalSpec entity) {
+    return getFieldsOf(entity.getElement())
+      .stream()
+      .filter(
+        field ->
+          env.getTypeUtils().isSameType(field.asType(), enumType.asType())
+      )
+      .map(field -> field.getAnnotation(Enumerated.class))
+      .anyMatch(
+        enumerated ->
+          enumerated != null && enumerated.value() == EnumType.STRING
+      );
+  }
+
+  private CodeBlock constructorCallOf(
+    TypeElement dto,
+    EntityDalSpec entityDalSpec
+  ) {
+    val constructor = dto
+      .getEnclosedElements()
+      .stream()
+      .filter(e -> e.getKind() == ElementKind.CONSTRUCTOR)
+      .filter(e -> e.getModifiers().contains(Modifier.PUBLIC))
+      .map(e -> (ExecutableElement) e)
+      .max(Comparator.comparingInt(e -> e.getParameters().size()))
+      .orElse(null);
+    if (constructor == null || constructor.getParameters().isEmpty()) {
+      logCompilationError(
+        env,
+        entityDalSpec.getElement(),
+        dto.getQualifiedName() +
+        " must declare a public constructor taking the query's columns in order"
+      );
+      return null;
+    }
+    val args = new ArrayList<CodeBlock>();
+    int index = 1;
+    for (VariableElement parameter : constructor.getParameters()) {
+      args.add(columnGetterOf(parameter.asType(), index++));
+    }
+    return CodeBlock.of("new $T($L)", dto, CodeBlock.join(args, ", "));
+  }
+
+  private CodeBlock columnGetterOf(TypeMirror type, int index) {
+    val erasure = env.getTypeUtils().erasure(type);
+    val getter = RESULT_SET_GETTERS.get(erasure.toString());
+    if (getter != null) return CodeBlock.of("resultSet.$L($L)", getter, index);
+    if (erasure.toString().equals("char")) return CodeBlock.of(
+      "$T.charOf(resultSet, $L)",
+      JdbcQueries.class,
+      index
+    );
+    return CodeBlock.of(
+      "$T.columnOf(resultSet, $L, $T.class)",
+      JdbcQueries.class,
+      index,
+      TypeName.get(erasure).box()
+    );
+  }
+
+  private MethodSpec queryMethod(
+    CustomSQLQuery query,
+    String constantPrefix,
+    EntityDalSpec entityDalSpec
+  ) {
+    val builder = MethodSpec
+      .methodBuilder(query.getName())
+      .addModifiers(Modifier.PUBLIC)
+      .returns(query.returnSignature())
+      .addComment("jdbc queries don't trigger hibernate's auto flush")
+      .addStatement(
+        "if (entityManager.isJoinedToTransaction()) entityManager.flush()"
+      )
+      .addStatement(
+        "final $T params = new $T()",
+        MapSqlParameterSource.class,
+        MapSqlParameterSource.class
+      );
+    for (Map.Entry<String, TypeName> arg : query.getArgs().entrySet()) {
+      builder
+        .addParameter(arg.getValue(), arg.getKey())
+        .addStatement(
+          "params.addValue($S, $L)",
+          arg.getKey(),
+          parameterValueOf(arg.getKey(), arg.getValue(), entityDalSpec)
+        );
+    }
+    val call = CodeBlock.of(
+      "jdbcTemplate.query($L_SQL, params, $L_ROW_MAPPER)",
+      constantPrefix,
+      constantPrefix
+    );
+    if (
+      query.getReturnPlurality() == ReturnPlurality.SINGLE
+    ) builder.addStatement(
+      "return $T.singleResult($L)",
+      DataAccessUtils.class,
+      call
+    ); else builder.addStatement("return $L", call);
+    return builder.build();
+  }
+}
@@ -3,4 +3,7 @@ package dev.sanda.datafi.code_generator.query;
 public enum ReturnPlurality {
   SINGLE,
   BATCH,
+  MODIFYING,
+  PAGE,
+  STREAM,
 }
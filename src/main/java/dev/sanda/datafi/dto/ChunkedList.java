@@ -0,0 +1,59 @@
+package dev.sanda.datafi.dto;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The content of a fetchAll {@link Page}, populated lazily in chunks as it's
+ * read, rather than loading the entire result set up front. Chunks are read in
+ * order from the given source, and only the most recently read one is
+ * retained, hence iterating over it - as serializers do - holds a single chunk
+ * in memory at a time and reads the results once. Reading backwards restarts
+ * from the first chunk. Results beyond {@link Integer#MAX_VALUE} are out of
+ * range, as per the {@link List} contract.
+ */
+public class ChunkedList<T> extends AbstractList<T> {
+
+  private final int size;
+  private final Supplier<Iterator<List<T>>> chunkSource;
+  private Iterator<List<T>> chunks;
+  private List<T> loadedChunk = Collections.emptyList();
+  private int loadedChunkOffset = 0;
+
+  public ChunkedList(
+    long totalCount,
+    Supplier<Iterator<List<T>>> chunkSource
+  ) {
+    this.size = (int) Math.min(totalCount, Integer.MAX_VALUE);
+    this.chunkSource = chunkSource;
+  }
+
+  @Override
+  public synchronized T get(int index) {
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException(
+      "Index: " + index + ", Size: " + size
+    );
+    if (chunks == null || index < loadedChunkOffset) {
+      chunks = chunkSource.get();
+      loadedChunk = Collections.emptyList();
+      loadedChunkOffset = 0;
+    }
+    while (index >= loadedChunkOffset + loadedChunk.size()) {
+      if (!chunks.hasNext()) throw new ConcurrentModificationException(
+        "Results were removed while reading them in chunks"
+      );
+      loadedChunkOffset += loadedChunk.size();
+      loadedChunk = chunks.next();
+    }
+    return loadedChunk.get(index - loadedChunkOffset);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
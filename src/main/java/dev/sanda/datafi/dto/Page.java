@@ -1,8 +1,10 @@
 package dev.sanda.datafi.dto;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -25,4 +27,15 @@ public class Page<T> {
     totalItemsCount = page.getTotalElements();
     pageNumber = page.getNumber();
   }
+
+  /**
+   * A single page of all results, the chunks of which are read lazily, in
+   * order, from the given chunk source.
+   */
+  public Page(long totalCount, Supplier<Iterator<List<T>>> chunkSource) {
+    content = new ChunkedList<>(totalCount, chunkSource);
+    totalPagesCount = 1L;
+    totalItemsCount = totalCount;
+    pageNumber = 0;
+  }
 }
@@ -4,6 +4,7 @@ import dev.sanda.datafi.annotations.attributes.NonApiUpdatable;
 import java.io.Serializable;
 import javax.persistence.*;
 import lombok.*;
+import org.hibernate.proxy.HibernateProxyHelper;
 
 /**
  * A convenient @MappedSuperclass which takes care of the boilerplate
@@ -14,7 +15,6 @@ import lombok.*;
  * @param <TID>
  */
 @MappedSuperclass
-@EqualsAndHashCode
 @RequiredArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -50,4 +50,27 @@ public abstract class BasePersistableEntity<TID> implements Serializable {
   protected void customFirstTimeInit() {}
 
   public abstract void initId();
+
+  /**
+   * Two instances are equal if they're of the same entity type and share the same id
+   * (an instance without an id is only equal to itself). Unlike field based equality,
+   * this doesn't initialize lazy associations, and doesn't change when the entity is mutated.
+   */
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) return true;
+    if (
+      id == null ||
+      other == null ||
+      HibernateProxyHelper.getClassWithoutInitializingProxy(other) !=
+      HibernateProxyHelper.getClassWithoutInitializingProxy(this)
+    ) return false;
+    //the id getter of an uninitialized proxy doesn't initialize it
+    return id.equals(((BasePersistableEntity<?>) other).getId());
+  }
+
+  @Override
+  public int hashCode() {
+    return id != null ? id.hashCode() : System.identityHashCode(this);
+  }
 }
@@ -1,10 +1,119 @@
 package dev.sanda.datafi.persistence;
 
+import dev.sanda.datafi.persistence.node_id.LeaseLossPolicy;
+import dev.sanda.datafi.persistence.node_id.MacAddressNodeIdProvider;
+import dev.sanda.datafi.persistence.node_id.NodeIdProvider;
+import java.time.Instant;
+
 public class IdFactory {
 
-  private static final SequenceGenerator sequenceGenerator = new SequenceGenerator();
+  private static volatile NodeIdProvider nodeIdProvider = new MacAddressNodeIdProvider();
+  private static volatile LeaseLossPolicy leaseLossPolicy = LeaseLossPolicy.FAIL_FAST;
+  private static volatile long maxClockBorrowMillis = 0;
+  private static volatile SequenceGenerator sequenceGenerator;
 
   public static Long getNextId() {
-    return sequenceGenerator.nextId();
+    return sequenceGenerator().nextId();
+  }
+
+  /**
+   * Decodes the creation time encoded within an id generated by this factory.
+   * Ids generated while borrowing from a regressed clock may be
+   * a few milliseconds ahead of their actual creation time.
+   */
+  public static Instant createdAt(long id) {
+    return SequenceGenerator.toInstant(id);
+  }
+
+  /**
+   * @return the smallest id that could have been generated at or after the given instant
+   */
+  public static long lowerBoundIdAt(Instant instant) {
+    return SequenceGenerator.minIdAt(instant);
+  }
+
+  /**
+   * Replaces the source of the node id embedded in subsequently generated ids.
+   * Should be called once on startup, before any ids are generated.
+   */
+  public static synchronized void configure(
+    NodeIdProvider nodeIdProvider,
+    LeaseLossPolicy leaseLossPolicy
+  ) {
+    configure(nodeIdProvider, leaseLossPolicy, maxClockBorrowMillis);
+  }
+
+  /**
+   * @param maxClockBorrowMillis if positive, system clock regressions of up to
+   * this many milliseconds are absorbed by a logical timestamp rather than
+   * causing id generation to fail - see {@link SequenceGenerator}.
+   */
+  public static synchronized void configure(
+    NodeIdProvider nodeIdProvider,
+    LeaseLossPolicy leaseLossPolicy,
+    long maxClockBorrowMillis
+  ) {
+    final NodeIdProvider previous = IdFactory.nodeIdProvider;
+    IdFactory.nodeIdProvider = nodeIdProvider;
+    IdFactory.leaseLossPolicy = leaseLossPolicy;
+    IdFactory.maxClockBorrowMillis = maxClockBorrowMillis;
+    sequenceGenerator = successorOf(sequenceGenerator);
+    if (previous != nodeIdProvider) previous.release();
+  }
+
+  public static NodeIdProvider getNodeIdProvider() {
+    return nodeIdProvider;
+  }
+
+  public static SequenceGenerator getSequenceGenerator() {
+    return sequenceGenerator();
+  }
+
+  /**
+   * Given the FAIL_FAST lease loss policy, refuses to insert entities with ids
+   * generated by this factory once the node id is no longer held by this node
+   * - unless renewing its lease right away succeeds. Ids are assigned upon
+   * instantiation, which includes hibernate hydrating existing entities, and
+   * hence are refused upon insertion rather than upon generation.
+   */
+  public static void verifyNodeIdIsHeld() {
+    final SequenceGenerator current = sequenceGenerator;
+    if (
+      current == null ||
+      leaseLossPolicy != LeaseLossPolicy.FAIL_FAST ||
+      nodeIdProvider.isValid() ||
+      nodeIdProvider.renew()
+    ) return;
+    throw new IllegalStateException(
+      "Node id " +
+      current.getNodeId() +
+      " is no longer held by this node, refusing to insert entities with ids " +
+      "generated by it"
+    );
+  }
+
+  private static SequenceGenerator sequenceGenerator() {
+    SequenceGenerator current = sequenceGenerator;
+    if (current != null && nodeIdProvider.isValid()) return current;
+    synchronized (IdFactory.class) {
+      current = sequenceGenerator;
+      if (current != null && nodeIdProvider.isValid()) return current;
+      //ids generated meanwhile are refused upon insertion instead
+      if (
+        current != null && leaseLossPolicy == LeaseLossPolicy.FAIL_FAST
+      ) return current;
+      sequenceGenerator = current = successorOf(current);
+      return current;
+    }
+  }
+
+  private static SequenceGenerator successorOf(SequenceGenerator current) {
+    final SequenceGenerator successor = new SequenceGenerator(
+      nodeIdProvider,
+      maxClockBorrowMillis
+    );
+    //a re-leased node id is typically the same one, so ids mustn't overlap
+    successor.takeOverFrom(current);
+    return successor;
   }
 }
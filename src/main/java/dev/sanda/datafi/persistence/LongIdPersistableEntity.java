@@ -0,0 +1,44 @@
+package dev.sanda.datafi.persistence;
+
+import dev.sanda.datafi.annotations.attributes.NonApiUpdatable;
+import java.io.Serializable;
+import javax.persistence.*;
+import lombok.Getter;
+import org.hibernate.proxy.HibernateProxyHelper;
+
+/**
+ * A lighter weight alternative to {@link StandardPersistableEntity},
+ * with a plain primitive long id (as opposed to an embedded {@link SimpleId}),
+ * assigned by {@link IdFactory} upon instantiation.
+ * Two instances are equal if and only if they're of the same entity type and share the same id.
+ */
+@MappedSuperclass
+@Getter
+public abstract class LongIdPersistableEntity implements Serializable {
+
+  @Id
+  @NonApiUpdatable
+  @Column(name = "id", unique = true, nullable = false, updatable = false)
+  protected long id = IdFactory.getNextId();
+
+  @Version
+  @NonApiUpdatable
+  private Long version = 0L;
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) return true;
+    if (
+      other == null ||
+      HibernateProxyHelper.getClassWithoutInitializingProxy(other) !=
+      HibernateProxyHelper.getClassWithoutInitializingProxy(this)
+    ) return false;
+    //the id getter of an uninitialized proxy doesn't initialize it
+    return id == ((LongIdPersistableEntity) other).getId();
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(id);
+  }
+}
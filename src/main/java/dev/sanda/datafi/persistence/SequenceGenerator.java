@@ -1,47 +1,98 @@
 package dev.sanda.datafi.persistence;
 
-import java.net.NetworkInterface;
-import java.security.SecureRandom;
+import dev.sanda.datafi.persistence.node_id.MacAddressNodeIdProvider;
+import dev.sanda.datafi.persistence.node_id.NodeIdProvider;
 import java.time.Instant;
-import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SequenceGenerator {
 
   private static final int TOTAL_BITS = 64;
   private static final int EPOCH_BITS = 42;
-  private static final int NODE_ID_BITS = 10;
+  private static final int NODE_ID_BITS = NodeIdProvider.NODE_ID_BITS;
   private static final int SEQUENCE_BITS = 12;
 
-  private static final int maxNodeId = (int) (Math.pow(2, NODE_ID_BITS) - 1);
   private static final int maxSequence = (int) (Math.pow(2, SEQUENCE_BITS) - 1);
 
   // Custom Epoch (January 1, 2015 Midnight UTC = 2015-01-01T00:00:00Z)
   private static final long CUSTOM_EPOCH = 1420070400000L;
 
+  // How long id generation may block for the system clock to catch up
+  private static final long MAX_STALL_MILLIS = 1000;
+
   private final int nodeId;
 
+  /**
+   * If positive, the generator keeps a logical timestamp which never moves
+   * backwards, and may run up to this many milliseconds ahead of the system
+   * clock. Otherwise, any backwards step of the system clock is an error.
+   */
+  private final long maxBorrowMillis;
+
   private long lastTimestamp = -1L;
+  private long lastWallTimestamp = -1L;
   private long sequence = 0L;
 
+  // The generator which took over from this one, if any - guarded by this
+  private SequenceGenerator successor;
+
+  private final AtomicLong borrowCount = new AtomicLong();
+  private final AtomicLong stallCount = new AtomicLong();
+  private final AtomicLong clockRegressionCount = new AtomicLong();
+
   // Create SequenceGenerator with a nodeId
   public SequenceGenerator(int nodeId) {
-    if (nodeId < 0 || nodeId > maxNodeId) {
-      throw new IllegalArgumentException(
-        String.format("NodeId must be between %d and %d", 0, maxNodeId)
-      );
-    }
-    this.nodeId = nodeId;
+    this(nodeId, 0);
+  }
+
+  // Create SequenceGenerator with a nodeId, tolerating clock regressions of up to maxBorrowMillis
+  public SequenceGenerator(int nodeId, long maxBorrowMillis) {
+    this.nodeId = NodeIdProvider.validated(nodeId);
+    this.maxBorrowMillis = maxBorrowMillis;
+  }
+
+  // Create SequenceGenerator with a nodeId obtained from the given provider
+  public SequenceGenerator(NodeIdProvider nodeIdProvider) {
+    this(nodeIdProvider.getNodeId());
+  }
+
+  public SequenceGenerator(
+    NodeIdProvider nodeIdProvider,
+    long maxBorrowMillis
+  ) {
+    this(nodeIdProvider.getNodeId(), maxBorrowMillis);
   }
 
   // Let SequenceGenerator generate a nodeId
   public SequenceGenerator() {
-    this.nodeId = createNodeId();
+    this(new MacAddressNodeIdProvider());
+  }
+
+  public int getNodeId() {
+    return nodeId;
+  }
+
+  // Number of times the logical timestamp was moved ahead of the system clock
+  public long getBorrowCount() {
+    return borrowCount.get();
+  }
+
+  // Number of times id generation blocked because the borrowing window was exhausted
+  public long getStallCount() {
+    return stallCount.get();
+  }
+
+  // Number of times the system clock was observed moving backwards
+  public long getClockRegressionCount() {
+    return clockRegressionCount.get();
   }
 
   public long nextId() {
+    if (maxBorrowMillis > 0) return nextIdWithLogicalClock();
     long currentTimestamp = timestamp();
 
     synchronized (this) {
+      if (successor != null) return successor.nextId();
       if (currentTimestamp < lastTimestamp) {
         throw new IllegalStateException("Invalid System Clock!");
       }
@@ -66,6 +117,103 @@ public class SequenceGenerator {
     return id;
   }
 
+  private long nextIdWithLogicalClock() {
+    long stallDeadline = -1;
+    while (true) {
+      final long waitMillis;
+      synchronized (this) {
+        if (successor != null) return successor.nextId();
+        final long wallTimestamp = timestamp();
+        if (
+          wallTimestamp < lastWallTimestamp
+        ) clockRegressionCount.incrementAndGet();
+        lastWallTimestamp = wallTimestamp;
+        if (wallTimestamp > lastTimestamp) {
+          lastTimestamp = wallTimestamp;
+          sequence = 0;
+          return idOf(lastTimestamp, sequence);
+        }
+        // the clock has either not moved on, or moved backwards - carry on with the logical timestamp
+        if (((sequence + 1) & maxSequence) != 0) return idOf(
+          lastTimestamp,
+          ++sequence
+        );
+        // move on to the next logical millisecond, borrowing it from the future if need be
+        final long next = lastTimestamp + 1;
+        waitMillis = next - wallTimestamp - maxBorrowMillis;
+        if (waitMillis <= 0) {
+          borrowCount.incrementAndGet();
+          lastTimestamp = next;
+          sequence = 0;
+          return idOf(lastTimestamp, sequence);
+        }
+      }
+      // too far ahead of the system clock - wait (unlocked) until it catches up
+      final long now = System.currentTimeMillis();
+      if (stallDeadline < 0) {
+        stallCount.incrementAndGet();
+        stallDeadline = now + MAX_STALL_MILLIS;
+      } else if (now >= stallDeadline) throw new IllegalStateException(
+        "The system clock is more than " +
+        maxBorrowMillis +
+        "ms behind the last generated id, and hasn't caught up within " +
+        MAX_STALL_MILLIS +
+        "ms"
+      );
+      try {
+        Thread.sleep(Math.min(waitMillis, stallDeadline - now));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(
+          "Interrupted while waiting for the system clock to catch up",
+          e
+        );
+      }
+    }
+  }
+
+  /**
+   * Takes over from the given (nullable) generator, which delegates to this
+   * one from then on. Subsequent ids are of timestamps later than the last one
+   * of the given generator, such that they can't collide with its ids even if
+   * both are of the same node id - e.g. given a re-leased node id.
+   */
+  void takeOverFrom(SequenceGenerator previous) {
+    if (previous == null) return;
+    synchronized (previous) {
+      synchronized (this) {
+        lastTimestamp = Math.max(lastTimestamp, previous.lastTimestamp);
+        lastWallTimestamp =
+          Math.max(lastWallTimestamp, previous.lastWallTimestamp);
+        // exhausted, so as to move on to the next millisecond
+        sequence = maxSequence;
+      }
+      previous.successor = this;
+    }
+  }
+
+  private long idOf(long timestamp, long sequenceNumber) {
+    long id = timestamp << (TOTAL_BITS - EPOCH_BITS);
+    id |= (nodeId << (TOTAL_BITS - EPOCH_BITS - NODE_ID_BITS));
+    id |= sequenceNumber;
+    return id;
+  }
+
+  // The instant (to the millisecond) at which the given id was generated
+  public static Instant toInstant(long id) {
+    return Instant.ofEpochMilli(
+      (id >>> (TOTAL_BITS - EPOCH_BITS)) + CUSTOM_EPOCH
+    );
+  }
+
+  // The smallest id which can be generated at the given instant (clamped to the custom epoch)
+  public static long minIdAt(Instant instant) {
+    return (
+      Math.max(instant.toEpochMilli() - CUSTOM_EPOCH, 0) <<
+      (TOTAL_BITS - EPOCH_BITS)
+    );
+  }
+
   // Get current timestamp in milliseconds, adjust for the custom epoch.
   private static long timestamp() {
     return Instant.now().toEpochMilli() - CUSTOM_EPOCH;
@@ -78,26 +226,4 @@ public class SequenceGenerator {
     }
     return currentTimestamp;
   }
-
-  private int createNodeId() {
-    int nodeId;
-    try {
-      StringBuilder sb = new StringBuilder();
-      Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
-      while (networkInterfaces.hasMoreElements()) {
-        NetworkInterface networkInterface = networkInterfaces.nextElement();
-        byte[] mac = networkInterface.getHardwareAddress();
-        if (mac != null) {
-          for (int i = 0; i < mac.length; i++) {
-            sb.append(String.format("%02X", mac[i]));
-          }
-        }
-      }
-      nodeId = sb.toString().hashCode();
-    } catch (Exception ex) {
-      nodeId = (new SecureRandom().nextInt());
-    }
-    nodeId = nodeId & maxNodeId;
-    return nodeId;
-  }
 }
@@ -1,19 +1,42 @@
 package dev.sanda.datafi.persistence;
 
 import java.io.Serializable;
+import java.util.Objects;
 import javax.persistence.Embeddable;
+import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 
 @lombok.Getter
 @lombok.Setter
 @Embeddable
 @NoArgsConstructor
+@AllArgsConstructor
 public class SimpleId implements Serializable {
 
-  private Long id = IdFactory.getNextId();
+  //hydrated instances are assigned their id by hibernate
+  private Long id;
+
+  /**
+   * @return a new id, generated by the {@link IdFactory}.
+   */
+  public static SimpleId generate() {
+    return new SimpleId(IdFactory.getNextId());
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) return true;
+    if (!(other instanceof SimpleId)) return false;
+    return Objects.equals(id, ((SimpleId) other).id);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(id);
+  }
 
   @Override
   public String toString() {
-    return this.id.toString();
+    return String.valueOf(this.id);
   }
 }
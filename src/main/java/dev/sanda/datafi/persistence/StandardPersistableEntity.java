@@ -6,8 +6,16 @@ import javax.persistence.MappedSuperclass;
 public abstract class StandardPersistableEntity
   extends BasePersistableEntity<SimpleId> {
 
+  /**
+   * The id is assigned upon instantiation rather than upon first persist,
+   * such that equality and hash codes are stable throughout an instance's lifecycle.
+   */
+  public StandardPersistableEntity() {
+    this.id = SimpleId.generate();
+  }
+
   @Override
   public void initId() {
-    this.id = new SimpleId();
+    if (this.id == null) this.id = SimpleId.generate();
   }
 }
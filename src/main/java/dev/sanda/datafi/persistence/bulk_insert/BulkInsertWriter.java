@@ -0,0 +1,147 @@
+package dev.sanda.datafi.persistence.bulk_insert;
+
+import dev.sanda.datafi.persistence.SimpleId;
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Id;
+import org.hibernate.proxy.HibernateProxy;
+
+/**
+ * Binds entities of a given type as rows of a native multi-row INSERT
+ * statement. Implementations are generated at compile time per entity, with
+ * the columns and their JDBC types derived from the entity's fields.
+ */
+public interface BulkInsertWriter<T> {
+  Class<T> getEntityType();
+
+  String getTable();
+
+  List<String> getColumns();
+
+  /**
+   * Binds the column values of the given entity, starting at the given
+   * (1 based) parameter index.
+   */
+  void bind(T entity, PreparedStatement statement, int firstParameterIndex)
+    throws SQLException;
+
+  default String insertStatement(int rowCount) {
+    final StringBuilder row = new StringBuilder("(");
+    for (int i = 0; i < getColumns().size(); i++) row.append(
+      i == 0 ? "?" : ", ?"
+    );
+    row.append(")");
+    final StringBuilder statement = new StringBuilder("INSERT INTO ")
+      .append(getTable())
+      .append(" (")
+      .append(String.join(", ", getColumns()))
+      .append(") VALUES ");
+    for (int i = 0; i < rowCount; i++) statement
+      .append(i == 0 ? "" : ", ")
+      .append(row);
+    return statement.toString();
+  }
+
+  static Field fieldOf(Class<?> type, String name) {
+    for (
+      Class<?> current = type;
+      current != null;
+      current = current.getSuperclass()
+    ) {
+      try {
+        final Field field = current.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+      } catch (NoSuchFieldException ignored) {}
+    }
+    throw new IllegalArgumentException(
+      type.getName() + " has no field named " + name
+    );
+  }
+
+  static Object valueOf(Field field, Object entity) {
+    try {
+      return field.get(entity);
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  static Object simpleIdValueOf(Object simpleId) {
+    return simpleId != null ? ((SimpleId) simpleId).getId() : null;
+  }
+
+  static Object ordinalOf(Object enumValue) {
+    return enumValue != null ? ((Enum<?>) enumValue).ordinal() : null;
+  }
+
+  static Object nameOf(Object enumValue) {
+    return enumValue != null ? ((Enum<?>) enumValue).name() : null;
+  }
+
+  static Object stringOf(Object value) {
+    return value != null ? value.toString() : null;
+  }
+
+  static Object timestampOf(Object value) {
+    if (value instanceof Instant) return Timestamp.from((Instant) value);
+    if (value instanceof Date) return new Timestamp(((Date) value).getTime());
+    return value;
+  }
+
+  /**
+   * @return the id of the given associated entity (unwrapped if it's a
+   * {@link SimpleId}), as bound to the foreign key column referencing it.
+   */
+  static Object foreignKeyOf(Object associatedEntity) {
+    if (associatedEntity == null) return null;
+    final Object id = associatedEntity instanceof HibernateProxy
+      ? (
+        (HibernateProxy) associatedEntity
+      ).getHibernateLazyInitializer()
+        .getIdentifier()
+      : valueOf(IdFields.of(associatedEntity.getClass()), associatedEntity);
+    return id instanceof SimpleId ? ((SimpleId) id).getId() : id;
+  }
+
+  final class IdFields {
+
+    private static final Map<Class<?>, Field> cache = new ConcurrentHashMap<>();
+
+    private IdFields() {}
+
+    static Field of(Class<?> type) {
+      return cache.computeIfAbsent(
+        type,
+        t -> {
+          for (
+            Class<?> current = t;
+            current != null;
+            current = current.getSuperclass()
+          ) {
+            for (Field field : current.getDeclaredFields()) {
+              if (
+                field.isAnnotationPresent(Id.class) ||
+                field.isAnnotationPresent(EmbeddedId.class)
+              ) {
+                field.setAccessible(true);
+                return field;
+              }
+            }
+          }
+          throw new IllegalArgumentException(
+            t.getName() + " has no id field"
+          );
+        }
+      );
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package dev.sanda.datafi.persistence.bulk_insert;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the generated {@link BulkInsertWriter} of each entity type.
+ */
+@Component
+public class BulkInsertWriters {
+
+  @Autowired(required = false)
+  private List<BulkInsertWriter<?>> writers;
+
+  private final Map<Class<?>, BulkInsertWriter<?>> writersByEntityType = new HashMap<>();
+
+  @PostConstruct
+  private void init() {
+    if (writers != null) writers.forEach(
+      writer -> writersByEntityType.put(writer.getEntityType(), writer)
+    );
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> BulkInsertWriter<T> forType(Class<T> entityType) {
+    final BulkInsertWriter<T> writer = (BulkInsertWriter<T>) writersByEntityType.get(
+      entityType
+    );
+    if (writer == null) throw new IllegalArgumentException(
+      "No bulk insert writer has been generated for " +
+      entityType.getSimpleName() +
+      " - see the compilation notes of the datafi annotation processor"
+    );
+    return writer;
+  }
+}
@@ -0,0 +1,85 @@
+package dev.sanda.datafi.persistence.jdbc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * The native custom queries of a given entity type which map their rows onto
+ * a DTO (see {@code WithNativeQuery.mapTo}). Implementations are generated at
+ * compile time per entity, with a positional row mapper per query, and run
+ * their queries through a NamedParameterJdbcTemplate - bypassing the
+ * persistence context altogether. As hibernate's auto flush doesn't apply to
+ * them, the persistence context is flushed before each query within a
+ * transaction.
+ */
+public interface JdbcQueries<T> {
+  Class<T> getEntityType();
+
+  Set<String> getQueryNames();
+
+  /**
+   * Reads the value of the given (1 based) column as the given type, for
+   * DTO constructor parameters with no directly matching ResultSet getter.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  static <V> V columnOf(ResultSet resultSet, int index, Class<V> type)
+    throws SQLException {
+    final Object value = resultSet.getObject(index);
+    if (value == null || type.isInstance(value)) return (V) value;
+    if (type.isEnum()) return (V) (
+      value instanceof Number
+        ? type.getEnumConstants()[((Number) value).intValue()]
+        : Enum.valueOf((Class) type, value.toString())
+    );
+    if (value instanceof Number) return (V) numberOf((Number) value, type);
+    if (value instanceof Timestamp) {
+      final Timestamp timestamp = (Timestamp) value;
+      if (type.equals(Instant.class)) return (V) timestamp.toInstant();
+      if (
+        type.equals(LocalDateTime.class)
+      ) return (V) timestamp.toLocalDateTime();
+      if (
+        type.equals(LocalDate.class)
+      ) return (V) timestamp.toLocalDateTime().toLocalDate();
+      if (type.equals(Date.class)) return (V) new Date(timestamp.getTime());
+    }
+    if (
+      value instanceof java.sql.Date && type.equals(LocalDate.class)
+    ) return (V) ((java.sql.Date) value).toLocalDate();
+    if (type.equals(String.class)) return (V) value.toString();
+    return resultSet.getObject(index, type);
+  }
+
+  /**
+   * Reads the first character of the given (1 based) column - or the null
+   * character if the column is NULL or empty, as getInt reads NULL as 0.
+   */
+  static char charOf(ResultSet resultSet, int index) throws SQLException {
+    final String value = resultSet.getString(index);
+    return value == null || value.isEmpty() ? '\u0000' : value.charAt(0);
+  }
+
+  static Object numberOf(Number value, Class<?> type) {
+    if (type.equals(Long.class)) return value.longValue();
+    if (type.equals(Integer.class)) return value.intValue();
+    if (type.equals(Short.class)) return value.shortValue();
+    if (type.equals(Byte.class)) return value.byteValue();
+    if (type.equals(Double.class)) return value.doubleValue();
+    if (type.equals(Float.class)) return value.floatValue();
+    if (type.equals(Boolean.class)) return value.intValue() != 0;
+    if (type.equals(BigDecimal.class)) return new BigDecimal(value.toString());
+    if (type.equals(BigInteger.class)) return new BigDecimal(value.toString())
+      .toBigInteger();
+    throw new IllegalArgumentException(
+      "Cannot map a numeric column onto " + type.getName()
+    );
+  }
+}
@@ -0,0 +1,36 @@
+package dev.sanda.datafi.persistence.jdbc;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the generated {@link JdbcQueries} of each entity type.
+ */
+@Component
+public class JdbcQueriesRegistry {
+
+  @Autowired(required = false)
+  private List<JdbcQueries<?>> jdbcQueries;
+
+  private final Map<Class<?>, JdbcQueries<?>> jdbcQueriesByEntityType = new HashMap<>();
+
+  @PostConstruct
+  private void init() {
+    if (jdbcQueries != null) jdbcQueries.forEach(
+      queries -> jdbcQueriesByEntityType.put(queries.getEntityType(), queries)
+    );
+  }
+
+  /**
+   * @return the generated jdbc queries of the given entity type, or null if
+   * it has no native DTO queries.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> JdbcQueries<T> forType(Class<T> entityType) {
+    return (JdbcQueries<T>) jdbcQueriesByEntityType.get(entityType);
+  }
+}
@@ -0,0 +1,41 @@
+package dev.sanda.datafi.persistence.node_id;
+
+/**
+ * Reads the node id from an environment variable - e.g. one derived
+ * from a stateful set ordinal when running in a container orchestrator.
+ */
+public class EnvironmentNodeIdProvider implements NodeIdProvider {
+
+  public static final String DEFAULT_VARIABLE = "DATAFI_NODE_ID";
+
+  private final String variable;
+
+  public EnvironmentNodeIdProvider() {
+    this(DEFAULT_VARIABLE);
+  }
+
+  public EnvironmentNodeIdProvider(String variable) {
+    this.variable = variable;
+  }
+
+  @Override
+  public int getNodeId() {
+    final String value = System.getenv(variable);
+    if (
+      value == null || value.trim().isEmpty()
+    ) throw new IllegalStateException(
+      "Environment variable " + variable + " is not set"
+    );
+    try {
+      return NodeIdProvider.validated(Integer.parseInt(value.trim()));
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException(
+        "Environment variable " +
+        variable +
+        " is not a valid node id: " +
+        value,
+        e
+      );
+    }
+  }
+}
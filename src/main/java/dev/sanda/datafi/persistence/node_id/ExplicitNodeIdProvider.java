@@ -0,0 +1,18 @@
+package dev.sanda.datafi.persistence.node_id;
+
+/**
+ * A node id which has been explicitly assigned via configuration.
+ */
+public class ExplicitNodeIdProvider implements NodeIdProvider {
+
+  private final int nodeId;
+
+  public ExplicitNodeIdProvider(int nodeId) {
+    this.nodeId = NodeIdProvider.validated(nodeId);
+  }
+
+  @Override
+  public int getNodeId() {
+    return nodeId;
+  }
+}
@@ -0,0 +1,17 @@
+package dev.sanda.datafi.persistence.node_id;
+
+/**
+ * What {@link dev.sanda.datafi.persistence.IdFactory} does once its
+ * {@link NodeIdProvider} reports that the node id is no longer valid.
+ */
+public enum LeaseLossPolicy {
+  /**
+   * Refuse to insert entities with further ids, for as long as the lease
+   * can't be renewed.
+   */
+  FAIL_FAST,
+  /**
+   * Acquire a (possibly different) node id and carry on.
+   */
+  RE_LEASE,
+}
@@ -0,0 +1,283 @@
+package dev.sanda.datafi.persistence.node_id;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Leases a node id from a database table shared by all nodes, such that no two
+ * live nodes ever hold the same node id. The lease is kept alive by a background
+ * heartbeat, and expires if the heartbeat stops - e.g. if the node dies or loses
+ * its connection to the database - at which point the node id can be leased
+ * by another node. Lease expiry is based on the nodes' wall clocks, so the lease
+ * duration should comfortably exceed the clock skew between them.
+ */
+@Slf4j
+public class LeasedNodeIdProvider implements NodeIdProvider {
+
+  public static final String DEFAULT_TABLE = "datafi_node_id_lease";
+
+  private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+  //on demand renewals are attempted at most once per this many milliseconds
+  private static final long MIN_RENEWAL_INTERVAL_MILLIS = 1000;
+
+  private final DataSource dataSource;
+  private final String table;
+  private final long leaseDurationMillis;
+  private final long heartbeatIntervalMillis;
+
+  @Getter
+  private final String owner = UUID.randomUUID().toString();
+
+  private ScheduledExecutorService heartbeatExecutor;
+  private ScheduledFuture<?> heartbeat;
+  private volatile int nodeId = -1;
+  private volatile long leaseExpiresAt;
+  private volatile long lastRenewalAttemptAt;
+
+  public LeasedNodeIdProvider(DataSource dataSource) {
+    this(dataSource, DEFAULT_TABLE, 60_000, 15_000);
+  }
+
+  public LeasedNodeIdProvider(
+    DataSource dataSource,
+    String table,
+    long leaseDurationMillis,
+    long heartbeatIntervalMillis
+  ) {
+    if (
+      heartbeatIntervalMillis <= 0 ||
+      heartbeatIntervalMillis >= leaseDurationMillis
+    ) throw new IllegalArgumentException(
+      "Heartbeat interval must be positive and shorter than the lease duration"
+    );
+    this.dataSource = dataSource;
+    this.table = table;
+    this.leaseDurationMillis = leaseDurationMillis;
+    this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+  }
+
+  @Override
+  public synchronized int getNodeId() {
+    if (isValid()) return nodeId;
+    createTableIfAbsent();
+    nodeId = acquire();
+    startHeartbeat();
+    return nodeId;
+  }
+
+  /**
+   * The lease is considered lost as soon as it may have expired from the
+   * point of view of other nodes, even if no other node has taken it over yet.
+   */
+  @Override
+  public boolean isValid() {
+    return nodeId >= 0 && System.currentTimeMillis() < leaseExpiresAt;
+  }
+
+  /**
+   * A lease which has lapsed (e.g. due to a database outage) but not been
+   * taken over by another node in the meantime can still be renewed.
+   */
+  @Override
+  public boolean renew() {
+    if (isValid()) return true;
+    if (
+      System.currentTimeMillis() - lastRenewalAttemptAt <
+      MIN_RENEWAL_INTERVAL_MILLIS
+    ) return false;
+    renewLease();
+    return isValid();
+  }
+
+  @Override
+  public synchronized void release() {
+    if (heartbeat != null) heartbeat.cancel(false);
+    if (heartbeatExecutor != null) heartbeatExecutor.shutdownNow();
+    heartbeat = null;
+    heartbeatExecutor = null;
+    if (nodeId < 0) return;
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement statement = connection.prepareStatement(
+        "DELETE FROM " + table + " WHERE node_id = ? AND owner = ?"
+      )
+    ) {
+      statement.setInt(1, nodeId);
+      statement.setString(2, owner);
+      statement.executeUpdate();
+    } catch (SQLException e) {
+      log.warn(
+        "Failed to release lease of node id {}: {}",
+        nodeId,
+        e.toString()
+      );
+    }
+    nodeId = -1;
+    leaseExpiresAt = 0;
+  }
+
+  private int acquire() {
+    final long now = System.currentTimeMillis();
+    final Map<Integer, Long> leases = readLeases();
+    for (int candidate = 0; candidate <= MAX_NODE_ID; candidate++) {
+      final Long expiresAt = leases.get(candidate);
+      final boolean acquired = expiresAt == null
+        ? tryInsert(candidate, now)
+        : expiresAt < now && tryTakeOver(candidate, expiresAt, now);
+      if (acquired) {
+        leaseExpiresAt = now + leaseDurationMillis;
+        log.info("Leased node id {} as {}", candidate, owner);
+        return candidate;
+      }
+    }
+    throw new IllegalStateException(
+      "All " + (MAX_NODE_ID + 1) + " node ids are currently leased"
+    );
+  }
+
+  private Map<Integer, Long> readLeases() {
+    final Map<Integer, Long> leases = new HashMap<>();
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement statement = connection.prepareStatement(
+        "SELECT node_id, expires_at FROM " + table
+      );
+      ResultSet resultSet = statement.executeQuery()
+    ) {
+      while (resultSet.next()) leases.put(
+        resultSet.getInt(1),
+        resultSet.getLong(2)
+      );
+      return leases;
+    } catch (SQLException e) {
+      throw new IllegalStateException("Failed to read node id leases", e);
+    }
+  }
+
+  private boolean tryInsert(int candidate, long now) {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement statement = connection.prepareStatement(
+        "INSERT INTO " +
+        table +
+        " (node_id, owner, expires_at) VALUES (?, ?, ?)"
+      )
+    ) {
+      statement.setInt(1, candidate);
+      statement.setString(2, owner);
+      statement.setLong(3, now + leaseDurationMillis);
+      return statement.executeUpdate() == 1;
+    } catch (SQLException e) {
+      //another node has concurrently leased the same node id
+      if (isIntegrityConstraintViolation(e)) return false;
+      throw new IllegalStateException("Failed to lease node id", e);
+    }
+  }
+
+  private boolean tryTakeOver(int candidate, long expiredAt, long now) {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement statement = connection.prepareStatement(
+        "UPDATE " +
+        table +
+        " SET owner = ?, expires_at = ? WHERE node_id = ? AND expires_at = ?"
+      )
+    ) {
+      statement.setString(1, owner);
+      statement.setLong(2, now + leaseDurationMillis);
+      statement.setInt(3, candidate);
+      statement.setLong(4, expiredAt);
+      return statement.executeUpdate() == 1;
+    } catch (SQLException e) {
+      throw new IllegalStateException("Failed to lease node id", e);
+    }
+  }
+
+  private void renewLease() {
+    final int leasedNodeId = nodeId;
+    if (leasedNodeId < 0) return;
+    final long now = System.currentTimeMillis();
+    lastRenewalAttemptAt = now;
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement statement = connection.prepareStatement(
+        "UPDATE " +
+        table +
+        " SET expires_at = ? WHERE node_id = ? AND owner = ?"
+      )
+    ) {
+      statement.setLong(1, now + leaseDurationMillis);
+      statement.setInt(2, leasedNodeId);
+      statement.setString(3, owner);
+      if (statement.executeUpdate() == 1) {
+        leaseExpiresAt = now + leaseDurationMillis;
+      } else {
+        log.error("Lease of node id {} has been lost", leasedNodeId);
+        leaseExpiresAt = 0;
+      }
+    } catch (Exception e) {
+      //the lease will be considered lost once it expires without having been renewed
+      log.warn(
+        "Failed to renew lease of node id {}: {}",
+        leasedNodeId,
+        e.toString()
+      );
+    }
+  }
+
+  private void startHeartbeat() {
+    if (heartbeatExecutor == null) heartbeatExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+        runnable -> {
+          Thread thread = new Thread(runnable, "datafi-node-id-heartbeat");
+          thread.setDaemon(true);
+          return thread;
+        }
+      );
+    if (heartbeat == null) heartbeat =
+      heartbeatExecutor.scheduleAtFixedRate(
+        this::renewLease,
+        heartbeatIntervalMillis,
+        heartbeatIntervalMillis,
+        TimeUnit.MILLISECONDS
+      );
+  }
+
+  private void createTableIfAbsent() {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement statement = connection.prepareStatement(
+        "CREATE TABLE IF NOT EXISTS " +
+        table +
+        " (node_id INTEGER NOT NULL PRIMARY KEY," +
+        " owner VARCHAR(64) NOT NULL," +
+        " expires_at BIGINT NOT NULL)"
+      )
+    ) {
+      statement.executeUpdate();
+    } catch (SQLException e) {
+      //e.g. a database which doesn't support "IF NOT EXISTS", with the table having been created up front
+      log.debug("Could not create table {}: {}", table, e.toString());
+    }
+  }
+
+  private static boolean isIntegrityConstraintViolation(SQLException e) {
+    return (
+      e.getSQLState() != null &&
+      e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)
+    );
+  }
+}
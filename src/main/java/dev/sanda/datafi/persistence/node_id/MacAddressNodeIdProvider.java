@@ -0,0 +1,42 @@
+package dev.sanda.datafi.persistence.node_id;
+
+import java.net.NetworkInterface;
+import java.security.SecureRandom;
+import java.util.Enumeration;
+
+/**
+ * Derives the node id from a hash of the host's MAC addresses, falling back
+ * to a random node id. Collisions are likely whenever hosts share virtual
+ * MAC addresses (e.g. containers), in which case another provider should be used.
+ */
+public class MacAddressNodeIdProvider implements NodeIdProvider {
+
+  private final int nodeId = createNodeId();
+
+  @Override
+  public int getNodeId() {
+    return nodeId;
+  }
+
+  private static int createNodeId() {
+    int nodeId;
+    try {
+      StringBuilder sb = new StringBuilder();
+      Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
+      while (networkInterfaces.hasMoreElements()) {
+        NetworkInterface networkInterface = networkInterfaces.nextElement();
+        byte[] mac = networkInterface.getHardwareAddress();
+        if (mac != null) {
+          for (int i = 0; i < mac.length; i++) {
+            sb.append(String.format("%02X", mac[i]));
+          }
+        }
+      }
+      nodeId = sb.toString().hashCode();
+    } catch (Exception ex) {
+      nodeId = (new SecureRandom().nextInt());
+    }
+    nodeId = nodeId & MAX_NODE_ID;
+    return nodeId;
+  }
+}
@@ -0,0 +1,92 @@
+package dev.sanda.datafi.persistence.node_id;
+
+import dev.sanda.datafi.persistence.IdFactory;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configures the {@link NodeIdProvider} used by {@link IdFactory}, based on
+ * the "datafi.node-id.*" properties. "datafi.node-id.provider" can be one of
+ * "mac-address" (the default), "explicit", "environment" or "database".
+ */
+@Slf4j
+@Component
+public class NodeIdConfigurer {
+
+  @Value("${datafi.node-id.provider:mac-address}")
+  private String provider;
+
+  @Value("${datafi.node-id.value:-1}")
+  private int explicitNodeId;
+
+  @Value(
+    "${datafi.node-id.environment-variable:" +
+    EnvironmentNodeIdProvider.DEFAULT_VARIABLE +
+    "}"
+  )
+  private String environmentVariable;
+
+  @Value(
+    "${datafi.node-id.lease-table:" + LeasedNodeIdProvider.DEFAULT_TABLE + "}"
+  )
+  private String leaseTable;
+
+  @Value("${datafi.node-id.lease-duration-millis:60000}")
+  private long leaseDurationMillis;
+
+  @Value("${datafi.node-id.heartbeat-interval-millis:15000}")
+  private long heartbeatIntervalMillis;
+
+  @Value("${datafi.node-id.lease-loss-policy:FAIL_FAST}")
+  private LeaseLossPolicy leaseLossPolicy;
+
+  @Value("${datafi.node-id.max-clock-borrow-millis:0}")
+  private long maxClockBorrowMillis;
+
+  @Autowired
+  private ObjectProvider<DataSource> dataSource;
+
+  @PostConstruct
+  private void init() {
+    final NodeIdProvider nodeIdProvider = createNodeIdProvider();
+    IdFactory.configure(nodeIdProvider, leaseLossPolicy, maxClockBorrowMillis);
+    log.info(
+      "Using {} node id provider, node id: {}",
+      provider,
+      nodeIdProvider.getNodeId()
+    );
+  }
+
+  @PreDestroy
+  private void destroy() {
+    IdFactory.getNodeIdProvider().release();
+  }
+
+  private NodeIdProvider createNodeIdProvider() {
+    switch (provider) {
+      case "mac-address":
+        return new MacAddressNodeIdProvider();
+      case "explicit":
+        return new ExplicitNodeIdProvider(explicitNodeId);
+      case "environment":
+        return new EnvironmentNodeIdProvider(environmentVariable);
+      case "database":
+        return new LeasedNodeIdProvider(
+          dataSource.getObject(),
+          leaseTable,
+          leaseDurationMillis,
+          heartbeatIntervalMillis
+        );
+      default:
+        throw new IllegalArgumentException(
+          "Unknown datafi.node-id.provider: " + provider
+        );
+    }
+  }
+}
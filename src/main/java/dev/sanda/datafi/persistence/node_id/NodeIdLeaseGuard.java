@@ -0,0 +1,50 @@
+package dev.sanda.datafi.persistence.node_id;
+
+import dev.sanda.datafi.persistence.IdFactory;
+import dev.sanda.datafi.persistence.LongIdPersistableEntity;
+import dev.sanda.datafi.persistence.SimpleId;
+import javax.persistence.EntityManagerFactory;
+import lombok.val;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refuses to insert entities with ids generated by {@link IdFactory} once the
+ * node id embedded within them is no longer held by this node - see {@link
+ * IdFactory#verifyNodeIdIsHeld()}.
+ */
+@Component
+public class NodeIdLeaseGuard
+  implements SmartInitializingSingleton, PreInsertEventListener {
+
+  @Autowired
+  private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    val factory = entityManagerFactory.getIfAvailable();
+    if (factory == null) return;
+    factory
+      .unwrap(SessionFactoryImplementor.class)
+      .getServiceRegistry()
+      .getService(EventListenerRegistry.class)
+      .appendListeners(EventType.PRE_INSERT, this);
+  }
+
+  @Override
+  public boolean onPreInsert(PreInsertEvent event) {
+    if (
+      event.getId() instanceof SimpleId ||
+      event.getEntity() instanceof LongIdPersistableEntity
+    ) IdFactory.verifyNodeIdIsHeld();
+    //i.e. don't veto the insert
+    return false;
+  }
+}
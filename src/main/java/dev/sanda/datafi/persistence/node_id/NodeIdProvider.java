@@ -0,0 +1,49 @@
+package dev.sanda.datafi.persistence.node_id;
+
+/**
+ * Supplies the node id which is embedded in every id generated by
+ * a {@link dev.sanda.datafi.persistence.SequenceGenerator}. Distinct nodes
+ * (i.e. processes) generating ids concurrently must hold distinct node ids.
+ */
+public interface NodeIdProvider {
+  int NODE_ID_BITS = 10;
+  int MAX_NODE_ID = (1 << NODE_ID_BITS) - 1;
+
+  /**
+   * @return a node id between 0 and {@link #MAX_NODE_ID}, acquiring it if need be.
+   */
+  int getNodeId();
+
+  /**
+   * @return whether the node id last returned by {@link #getNodeId()}
+   * is still exclusively held by this node.
+   */
+  default boolean isValid() {
+    return true;
+  }
+
+  /**
+   * Attempts to renew the node id's lease right away, rather than awaiting
+   * its next scheduled renewal - e.g. once the lease has lapsed due to a
+   * transient outage.
+   *
+   * @return whether the node id is valid afterwards
+   */
+  default boolean renew() {
+    return isValid();
+  }
+
+  /**
+   * Gives up the node id, if it's been acquired (i.e. leased).
+   */
+  default void release() {}
+
+  static int validated(int nodeId) {
+    if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+      throw new IllegalArgumentException(
+        String.format("NodeId must be between %d and %d", 0, MAX_NODE_ID)
+      );
+    }
+    return nodeId;
+  }
+}
@@ -1,8 +1,5 @@
 package dev.sanda.datafi.reflection.cached_type_info;
 
-import static dev.sanda.datafi.DatafiStaticUtils.hasOneOfAnnotations;
-import static dev.sanda.datafi.reflection.runtime_services.ReflectionCache.getClassFields;
-
 import dev.sanda.datafi.annotations.attributes.NonApiUpdatable;
 import dev.sanda.datafi.annotations.attributes.NonApiUpdatables;
 import dev.sanda.datafi.annotations.attributes.NonNullable;
@@ -32,7 +29,7 @@ public class CachedEntityTypeInfo {
   private Class<?> clazz;
   private Object defaultInstance;
   private Map<String, CachedEntityField> fields;
-  private HashSet<String> sortKeys;
+  private EntityPathTrie pathTrie;
   private List<Field> cascadeUpdatableFields;
   private Map<String, Method> publicMethods;
   private List<String> searchFields;
@@ -45,7 +42,6 @@ public class CachedEntityTypeInfo {
     EntityRelationshipSyncronizer relationshipSyncronizer
   ) {
     this.relationshipSyncronizer = relationshipSyncronizer;
-    sortKeys = new HashSet<>();
     elementCollections = new HashMap<>();
     backpointers = new HashMap<>();
     val blacklistedBackpointers = new HashSet<Class>();
@@ -60,11 +56,6 @@ public class CachedEntityTypeInfo {
         boolean isNonApiUpdatable = isNonApiUpdatable(field);
         boolean isNonNullable = isNonNullableField(field);
         val fieldName = field.getName();
-        if (isEmbeddedOrForeignKey(field)) addNestedSortKeys(
-          field,
-          fieldName + ".",
-          new Stack<>()
-        );
         this.fields.put(
             fieldName,
             new CachedEntityField(
@@ -74,7 +65,6 @@ public class CachedEntityTypeInfo {
               isNonNullable
             )
           );
-        sortKeys.add(fieldName);
         if (
           field.isAnnotationPresent(Id.class) ||
           field.isAnnotationPresent(EmbeddedId.class)
@@ -110,6 +100,7 @@ public class CachedEntityTypeInfo {
         }
       }
     );
+    this.pathTrie = new EntityPathTrie(fields);
     this.publicMethods = new HashMap<>();
     publicMethods.forEach(
       publicMethod ->
@@ -119,16 +110,6 @@ public class CachedEntityTypeInfo {
     setCascadeUpdatableFields();
   }
 
-  private boolean isEmbeddedOrForeignKey(Field field) {
-    return hasOneOfAnnotations(
-      field,
-      EmbeddedId.class,
-      Embedded.class,
-      ManyToOne.class,
-      OneToOne.class
-    );
-  }
-
   @SneakyThrows
   public String toFlatJson(Object instance) {
     val builder = new StringBuilder("{");
@@ -162,27 +143,20 @@ public class CachedEntityTypeInfo {
     );
   }
 
-  private void addNestedSortKeys(
-    Field currentRoot,
-    String currentPrefix,
-    Stack<Class<?>> typesSoFar
-  ) {
-    val currentRootType = currentRoot.getType();
-    if (typesSoFar.contains(currentRootType)) return;
-    typesSoFar.push(currentRootType);
-    getClassFields(currentRootType)
-      .forEach(
-        field -> {
-          if (isEmbeddedOrForeignKey(field)) addNestedSortKeys(
-            field,
-            currentPrefix + field.getName() + ".",
-            typesSoFar
-          );
-          val fieldName = currentPrefix + field.getName();
-          sortKeys.add(fieldName);
-        }
-      );
-    typesSoFar.pop();
+  public boolean isSortKey(String dottedPath) {
+    return pathTrie.contains(dottedPath);
+  }
+
+  /**
+   * @return all of the (dotted) sort keys of this entity type - which expands
+   * the entire path trie, whereas {@link #isSortKey(String)} doesn't.
+   */
+  public HashSet<String> getSortKeys() {
+    return pathTrie.allPaths();
+  }
+
+  public ResolvedEntityPath resolvePath(String dottedPath) {
+    return pathTrie.resolve(dottedPath);
   }
 
   private boolean isNonApiUpdatable(Field field) {
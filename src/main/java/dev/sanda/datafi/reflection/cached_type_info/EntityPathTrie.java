@@ -0,0 +1,127 @@
+package dev.sanda.datafi.reflection.cached_type_info;
+
+import static dev.sanda.datafi.DatafiStaticUtils.hasOneOfAnnotations;
+import static dev.sanda.datafi.reflection.runtime_services.ReflectionCache.getClassFields;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.persistence.Embedded;
+import javax.persistence.EmbeddedId;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToOne;
+import lombok.val;
+
+/**
+ * A lazily expanded trie of all the (dotted) attribute paths reachable
+ * from a given entity type through its embedded and foreign key fields.
+ * Nested fields are only reflected upon once a path actually traverses them,
+ * and every successfully resolved path is cached as a {@link ResolvedEntityPath}.
+ */
+public class EntityPathTrie {
+
+  private final Node root;
+  private final Map<String, ResolvedEntityPath> resolvedPaths = new ConcurrentHashMap<>();
+
+  public EntityPathTrie(Collection<Field> fields) {
+    this.root = new Node(null, Collections.emptySet());
+    this.root.children = toChildNodes(fields, Collections.emptySet());
+  }
+
+  public boolean contains(String dottedPath) {
+    return resolve(dottedPath) != null;
+  }
+
+  public HashSet<String> allPaths() {
+    val paths = new HashSet<String>();
+    addPaths(root, "", paths);
+    return paths;
+  }
+
+  private static void addPaths(Node node, String prefix, Set<String> paths) {
+    node
+      .getChildren()
+      .forEach(
+        (name, child) -> {
+          paths.add(prefix + name);
+          addPaths(child, prefix + name + ".", paths);
+        }
+      );
+  }
+
+  /**
+   * @return the resolved path, or null if there is no such path
+   */
+  public ResolvedEntityPath resolve(String dottedPath) {
+    if (dottedPath == null || dottedPath.isEmpty()) return null;
+    val cached = resolvedPaths.get(dottedPath);
+    if (cached != null) return cached;
+    val segments = dottedPath.split("\\.");
+    val fields = new Field[segments.length];
+    Node current = root;
+    for (int i = 0; i < segments.length; i++) {
+      current = current.getChildren().get(segments[i]);
+      if (current == null) return null;
+      fields[i] = current.field;
+    }
+    val resolved = new ResolvedEntityPath(dottedPath, segments, fields);
+    val existing = resolvedPaths.putIfAbsent(dottedPath, resolved);
+    return existing != null ? existing : resolved;
+  }
+
+  public static boolean isEmbeddedOrForeignKey(Field field) {
+    return hasOneOfAnnotations(
+      field,
+      EmbeddedId.class,
+      Embedded.class,
+      ManyToOne.class,
+      OneToOne.class
+    );
+  }
+
+  private static Map<String, Node> toChildNodes(
+    Collection<Field> fields,
+    Set<Class<?>> expandedTypes
+  ) {
+    val children = new HashMap<String, Node>();
+    fields.forEach(
+      field ->
+        children.putIfAbsent(field.getName(), new Node(field, expandedTypes))
+    );
+    return Collections.unmodifiableMap(children);
+  }
+
+  private static class Node {
+
+    private final Field field;
+    private final boolean isExpandable;
+    private final Set<Class<?>> expandedTypes;
+    private volatile Map<String, Node> children;
+
+    private Node(Field field, Set<Class<?>> typesSoFar) {
+      this.field = field;
+      //types already expanded along the current path are not expanded again, so as to avoid cycles
+      this.isExpandable =
+        field != null &&
+        isEmbeddedOrForeignKey(field) &&
+        !typesSoFar.contains(field.getType());
+      if (isExpandable) {
+        val expandedTypes = new HashSet<Class<?>>(typesSoFar);
+        expandedTypes.add(field.getType());
+        this.expandedTypes = expandedTypes;
+      } else this.expandedTypes = typesSoFar;
+    }
+
+    private Map<String, Node> getChildren() {
+      if (children == null) {
+        synchronized (this) {
+          if (children == null) children =
+            isExpandable
+              ? toChildNodes(getClassFields(field.getType()), expandedTypes)
+              : Collections.emptyMap();
+        }
+      }
+      return children;
+    }
+  }
+}
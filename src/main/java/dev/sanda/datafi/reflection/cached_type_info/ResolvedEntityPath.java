@@ -0,0 +1,49 @@
+package dev.sanda.datafi.reflection.cached_type_info;
+
+import dev.sanda.datafi.DatafiStaticUtils;
+import java.lang.reflect.Field;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToOne;
+import lombok.Getter;
+
+/**
+ * A validated (dotted) attribute path of an entity, along with its
+ * pre-split segments, the knowledge of which of them are foreign keys and
+ * - unless any of them is - its column.
+ */
+@Getter
+public class ResolvedEntityPath {
+
+  private final String dottedPath;
+  private final String[] segments;
+  private final boolean[] isJoin;
+  private final Class<?> type;
+  //i.e. within the entity's own table, or null if the path joins another
+  private final String columnName;
+
+  public ResolvedEntityPath(
+    String dottedPath,
+    String[] segments,
+    Field[] fields
+  ) {
+    this.dottedPath = dottedPath;
+    this.segments = segments;
+    this.isJoin = new boolean[segments.length];
+    //the last segment is always a simple attribute access
+    for (int i = 0; i < segments.length - 1; i++) isJoin[i] =
+      fields[i].isAnnotationPresent(ManyToOne.class) ||
+      fields[i].isAnnotationPresent(OneToOne.class);
+    this.type = fields[fields.length - 1].getType();
+    boolean isJoined = false;
+    for (boolean join : isJoin) isJoined |= join;
+    this.columnName =
+      isJoined
+        ? null
+        : DatafiStaticUtils.columnNameOf(fields[fields.length - 1]);
+  }
+
+  @Override
+  public String toString() {
+    return dottedPath;
+  }
+}
@@ -0,0 +1,87 @@
+package dev.sanda.datafi.reflection.relationship_synchronization;
+
+import static dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo.genDefaultInstance;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.function.Supplier;
+import lombok.Getter;
+
+/**
+ * An immutable, precompiled description of how to set the backpointer
+ * for a given (source field, target type) pair - i.e. which field of the
+ * target to set or add to, and how to instantiate it if it's a null collection.
+ */
+@Getter
+@SuppressWarnings("unchecked")
+public class BackpointerSyncPlan {
+
+  private final BackpointerType backpointerType;
+  private final Class<?> sourceType;
+  private final Field sourceField;
+  private final Field targetField;
+  private final Supplier<Collection> collectionFactory;
+
+  public BackpointerSyncPlan(
+    BackpointerType backpointerType,
+    Class<?> sourceType,
+    Field sourceField,
+    Field targetField
+  ) {
+    this.backpointerType = backpointerType;
+    this.sourceType = sourceType;
+    this.sourceField = sourceField;
+    this.targetField = targetField;
+    this.collectionFactory =
+      isCollectionValued() ? collectionFactoryFor(targetField.getType()) : null;
+  }
+
+  public boolean isCollectionValued() {
+    return (
+      backpointerType == BackpointerType.ONE_TO_MANY ||
+      backpointerType == BackpointerType.MANY_TO_MANY
+    );
+  }
+
+  public void apply(Object thisInstance, Object toPointTo)
+    throws IllegalAccessException {
+    if (isCollectionValued()) {
+      getOrInstantiateCollection(thisInstance).add(toPointTo);
+    } else targetField.set(thisInstance, toPointTo);
+  }
+
+  /**
+   * Applies this plan for several instances to point to at once,
+   * such that the target collection is resolved only once.
+   */
+  public void applyAll(Object thisInstance, List<Object> toPointTo)
+    throws IllegalAccessException {
+    if (toPointTo.isEmpty()) return;
+    if (isCollectionValued()) {
+      getOrInstantiateCollection(thisInstance).addAll(toPointTo);
+    } else targetField.set(thisInstance, toPointTo.get(toPointTo.size() - 1));
+  }
+
+  private Collection getOrInstantiateCollection(Object thisInstance)
+    throws IllegalAccessException {
+    Collection value = (Collection) targetField.get(thisInstance);
+    if (value == null) {
+      value = collectionFactory.get();
+      targetField.set(thisInstance, value);
+    }
+    return value;
+  }
+
+  private static Supplier<Collection> collectionFactoryFor(
+    Class<?> collectionType
+  ) {
+    if (
+      collectionType.equals(Collection.class) ||
+      collectionType.equals(Set.class)
+    ) return HashSet::new;
+    if (collectionType.equals(List.class)) return ArrayList::new;
+    if (collectionType.equals(Queue.class)) return LinkedList::new;
+    if (collectionType.equals(Deque.class)) return ArrayDeque::new;
+    return () -> (Collection) genDefaultInstance(collectionType);
+  }
+}
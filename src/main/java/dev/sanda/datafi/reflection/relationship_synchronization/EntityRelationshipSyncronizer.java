@@ -1,14 +1,14 @@
 package dev.sanda.datafi.reflection.relationship_synchronization;
 
+import static dev.sanda.datafi.DatafiStaticUtils.hasOneOfAnnotations;
 import static dev.sanda.datafi.DatafiStaticUtils.toPascalCase;
-import static dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo.genDefaultInstance;
 import static dev.sanda.datafi.reflection.relationship_synchronization.BackpointerType.*;
 
 import dev.sanda.datafi.annotations.attributes.AutoSynchronized;
+import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
 import dev.sanda.datafi.reflection.runtime_services.CollectionsTypeResolver;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -30,67 +30,149 @@ public class EntityRelationshipSyncronizer {
     Object thisInstance,
     Object toPointTo
   ) {
+    val plan = syncPlans.get(sourceField);
+    if (
+      plan == null || !plan.getSourceType().isInstance(toPointTo)
+    ) return false;
     try {
-      val backpointerType = resolveBackpointerType(sourceField);
-      boolean success = false;
-      Field targetField;
-      String fieldTypeName = toPointTo.getClass().getSimpleName();
-      switch (Objects.requireNonNull(backpointerType)) {
-        case ONE_TO_MANY:
-          {
-            if (!oneToManyBackpointers.containsKey(fieldTypeName)) break;
-            targetField =
-              getTargetField(sourceField, fieldTypeName, oneToManyBackpointers);
-            val targetFieldValue = getOrInstantiateCollection(
-              targetField,
-              thisInstance
-            );
-            targetFieldValue.add(toPointTo);
-            success = true;
-          }
-          break;
-        case MANY_TO_MANY:
-          {
-            if (!manyToManyBackpointers.containsKey(fieldTypeName)) break;
-            targetField =
-              getTargetField(
-                sourceField,
-                fieldTypeName,
-                manyToManyBackpointers
-              );
-            val targetFieldValue = getOrInstantiateCollection(
-              targetField,
-              thisInstance
-            );
-            targetFieldValue.add(toPointTo);
-            success = true;
-          }
-          break;
-        case MANY_TO_ONE:
-          {
-            if (!manyToOneBackpointers.containsKey(fieldTypeName)) break;
-            targetField =
-              getTargetField(sourceField, fieldTypeName, manyToOneBackpointers);
-            targetField.set(thisInstance, toPointTo);
-            success = true;
-          }
-        case ONE_TO_ONE:
-          {
-            if (!oneToOneBackpointers.containsKey(fieldTypeName)) break;
-            targetField =
-              getTargetField(sourceField, fieldTypeName, oneToOneBackpointers);
-            targetField.set(thisInstance, toPointTo);
-            success = true;
-          }
-          break;
+      plan.apply(thisInstance, toPointTo);
+      return true;
+    } catch (Exception e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Batch equivalent of trySetBackpointer, for a collection of children - i.e. instances
+   * of this entity type - which reference their parent(s) via the given field.
+   * The children are grouped by parent identity, such that each parent's backpointer
+   * collection is resolved (and if need be, instantiated) only once.
+   */
+  public void syncBackpointers(Collection<?> children, String fieldName) {
+    val plan = outgoingSyncPlans.get(fieldName);
+    if (plan == null || children.isEmpty()) return;
+    try {
+      val childrenByParent = new IdentityHashMap<Object, List<Object>>();
+      for (Object child : children) {
+        val referenced = plan.getSourceField().get(child);
+        if (referenced instanceof Collection) {
+          for (Object parent : (Collection<?>) referenced) addToGroup(
+            childrenByParent,
+            parent,
+            child
+          );
+        } else addToGroup(childrenByParent, referenced, child);
       }
-      return success;
+      for (val entry : childrenByParent.entrySet()) plan.applyAll(
+        entry.getKey(),
+        entry.getValue()
+      );
+    } catch (Exception e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Sets the backpointers of the given children, which have just been added to the
+   * given field of the parent - i.e. an instance of this entity type.
+   */
+  public void syncBackpointers(
+    Object parent,
+    String fieldName,
+    Collection<?> children
+  ) {
+    val plan = outgoingSyncPlans.get(fieldName);
+    if (plan == null) return;
+    try {
+      for (Object child : children) plan.apply(child, parent);
     } catch (Exception e) {
       log.error(e.getMessage());
       throw new RuntimeException(e);
     }
   }
 
+  private static void addToGroup(
+    Map<Object, List<Object>> groups,
+    Object key,
+    Object value
+  ) {
+    if (key == null) return;
+    groups.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+  }
+
+  /**
+   * Precompiles the backpointer sync plans of all the relationship fields
+   * within the data model which reference this entity type. Should be called once
+   * all of the entity types have been cached, as it relies upon their
+   * respective relationship synchronizers.
+   */
+  public void compileSyncPlans(
+    Map<String, CachedEntityTypeInfo> entitiesCache
+  ) {
+    val plans = new HashMap<Field, BackpointerSyncPlan>();
+    for (CachedEntityTypeInfo sourceTypeInfo : entitiesCache.values()) {
+      val sourceSyncronizer = sourceTypeInfo.getRelationshipSyncronizer();
+      for (Field sourceField : sourceTypeInfo.getClazz().getDeclaredFields()) {
+        if (
+          !hasOneOfAnnotations(
+            sourceField,
+            ManyToOne.class,
+            OneToMany.class,
+            ManyToMany.class,
+            OneToOne.class
+          ) ||
+          sourceSyncronizer.resolveFieldType(sourceField) != clazz
+        ) continue;
+        val plan = compileSyncPlan(sourceField, sourceTypeInfo.getClazz());
+        if (plan != null) {
+          sourceField.setAccessible(true);
+          plans.put(sourceField, plan);
+          sourceSyncronizer.outgoingSyncPlans.put(sourceField.getName(), plan);
+        }
+      }
+    }
+    syncPlans = Collections.unmodifiableMap(plans);
+  }
+
+  private BackpointerSyncPlan compileSyncPlan(
+    Field sourceField,
+    Class<?> sourceType
+  ) {
+    val backpointerType = resolveBackpointerType(sourceField);
+    val targetFields = backpointersOfType(backpointerType)
+      .get(sourceType.getSimpleName());
+    if (targetFields == null) return null;
+    val targetField = targetFields.size() == 1
+      ? targetFields.values().iterator().next()
+      : targetFields.get(sourceField.getName());
+    if (targetField == null) return null;
+    return new BackpointerSyncPlan(
+      backpointerType,
+      sourceType,
+      sourceField,
+      targetField
+    );
+  }
+
+  private Map<String, Map<String, Field>> backpointersOfType(
+    BackpointerType backpointerType
+  ) {
+    switch (backpointerType) {
+      case ONE_TO_MANY:
+        return oneToManyBackpointers;
+      case MANY_TO_MANY:
+        return manyToManyBackpointers;
+      case MANY_TO_ONE:
+        return manyToOneBackpointers;
+      case ONE_TO_ONE:
+        return oneToOneBackpointers;
+      default:
+        return Collections.emptyMap();
+    }
+  }
+
   private BackpointerType resolveBackpointerType(Field sourceField) {
     if (sourceField.isAnnotationPresent(ManyToOne.class)) {
       return ONE_TO_MANY;
@@ -120,6 +202,9 @@ public class EntityRelationshipSyncronizer {
 
   Map<String, Method> apiSpecGettersByFieldName;
 
+  private Map<Field, BackpointerSyncPlan> syncPlans = Collections.emptyMap();
+  private Map<String, BackpointerSyncPlan> outgoingSyncPlans = new HashMap<>();
+
   public EntityRelationshipSyncronizer(
     Class clazz,
     Class<?> apiSpec,
@@ -340,21 +425,6 @@ public class EntityRelationshipSyncronizer {
     return field.getAnnotation(AutoSynchronized.class);
   }
 
-  private Field getTargetField(
-    Field sourceField,
-    String fieldTypeName,
-    Map<String, Map<String, Field>> backpointersMap
-  ) {
-    return backpointersMap.size() == 1
-      ? backpointersMap
-        .get(fieldTypeName)
-        .entrySet()
-        .iterator()
-        .next()
-        .getValue()
-      : backpointersMap.get(fieldTypeName).get(sourceField.getName());
-  }
-
   private String resolveFieldTypeName(Field field) {
     return resolveFieldType(field).getSimpleName();
   }
@@ -366,32 +436,4 @@ public class EntityRelationshipSyncronizer {
       clazz.getSimpleName() + "." + field.getName()
     );
   }
-
-  private Collection getOrInstantiateCollection(
-    Field targetField,
-    Object thisInstance
-  ) throws IllegalAccessException {
-    val rawValue = targetField.get(thisInstance);
-    return rawValue != null
-      ? (Collection) rawValue
-      : instantiateCollection(targetField, thisInstance);
-  }
-
-  private Collection instantiateCollection(Field field, Object thisInstance)
-    throws IllegalAccessException {
-    val collectionType = field.getType();
-    Collection resultValue = null;
-    if (Modifier.isInterface(collectionType.getModifiers())) {
-      if (collectionType.equals(Collection.class)) resultValue =
-        new HashSet(); else if (collectionType.equals(Set.class)) resultValue =
-        new HashSet(); else if (collectionType.equals(List.class)) resultValue =
-        new ArrayList(); else if (
-        collectionType.equals(Queue.class)
-      ) resultValue = new LinkedList(); else if (
-        collectionType.equals(Deque.class)
-      ) resultValue = new ArrayDeque();
-    } else resultValue = (Collection) genDefaultInstance(collectionType);
-    field.set(thisInstance, resultValue);
-    return (Collection) field.get(thisInstance);
-  }
 }
@@ -0,0 +1,91 @@
+package dev.sanda.datafi.reflection.runtime_services;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import lombok.val;
+
+/**
+ * Holds the fetch plans generated at compile time for each entity,
+ * keyed by "EntitySimpleName.planName", and translates them into entity graphs.
+ */
+public class FetchPlanResolver {
+
+  /**
+   * The name of the fetch plan which is generated for every entity,
+   * and which includes all of its direct (single valued) entity references.
+   */
+  public static final String REFERENCES = "references";
+
+  private final Map<String, Map<String, Map>> fetchPlans;
+
+  public FetchPlanResolver(Map<String, String[]> fetchPlans) {
+    this.fetchPlans = new HashMap<>();
+    fetchPlans.forEach(
+      (key, paths) -> this.fetchPlans.put(key, toTree(paths))
+    );
+  }
+
+  public boolean hasFetchPlan(String entityName, String planName) {
+    return fetchPlans.containsKey(entityName + "." + planName);
+  }
+
+  public <T> EntityGraph<T> toEntityGraph(
+    EntityManager entityManager,
+    Class<T> clazz,
+    String planName
+  ) {
+    val tree = fetchPlans.get(clazz.getSimpleName() + "." + planName);
+    if (tree == null) throw new IllegalArgumentException(
+      "No fetch plan named '" +
+      planName +
+      "' is defined for " +
+      clazz.getSimpleName()
+    );
+    EntityGraph<T> graph = entityManager.createEntityGraph(clazz);
+    addAttributeNodes(graph, tree);
+    return graph;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Map> toTree(String[] paths) {
+    Map<String, Map> tree = new LinkedHashMap<>();
+    for (String path : paths) {
+      Map<String, Map> current = tree;
+      for (String segment : path.split("\\.")) current =
+        current.computeIfAbsent(segment, s -> new LinkedHashMap<>());
+    }
+    return tree;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void addAttributeNodes(
+    EntityGraph<?> graph,
+    Map<String, Map> tree
+  ) {
+    tree.forEach(
+      (attribute, children) -> {
+        if (children.isEmpty()) graph.addAttributeNodes(
+          attribute
+        ); else addAttributeNodes(graph.addSubgraph(attribute), children);
+      }
+    );
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void addAttributeNodes(
+    Subgraph<?> subgraph,
+    Map<String, Map> tree
+  ) {
+    tree.forEach(
+      (attribute, children) -> {
+        if (children.isEmpty()) subgraph.addAttributeNodes(
+          attribute
+        ); else addAttributeNodes(subgraph.addSubgraph(attribute), children);
+      }
+    );
+  }
+}
@@ -61,6 +61,14 @@ public class ReflectionCache {
         )
       );
     }
+    entitiesCache
+      .values()
+      .forEach(
+        cachedEntityTypeInfo ->
+          cachedEntityTypeInfo
+            .getRelationshipSyncronizer()
+            .compileSyncPlans(entitiesCache)
+      );
   }
 
   private boolean isPersistableEntity(Class<?> currentType) {
@@ -5,28 +5,64 @@ import static dev.sanda.datafi.DatafiStaticUtils.*;
 
 import com.google.common.collect.Lists;
 import dev.sanda.datafi.DatafiStaticUtils;
+import dev.sanda.datafi.annotations.projections.GeneratedProjection;
+import dev.sanda.datafi.annotations.query.DtoSortKeys;
 import dev.sanda.datafi.dto.FreeTextSearchPageRequest;
 import dev.sanda.datafi.dto.Page;
 import dev.sanda.datafi.persistence.Archivable;
 import dev.sanda.datafi.persistence.GenericDao;
+import dev.sanda.datafi.persistence.IdFactory;
+import dev.sanda.datafi.persistence.LongIdPersistableEntity;
+import dev.sanda.datafi.persistence.SimpleId;
+import dev.sanda.datafi.persistence.bulk_insert.BulkInsertWriter;
+import dev.sanda.datafi.persistence.bulk_insert.BulkInsertWriters;
+import dev.sanda.datafi.persistence.jdbc.JdbcQueries;
+import dev.sanda.datafi.persistence.jdbc.JdbcQueriesRegistry;
 import dev.sanda.datafi.reflection.cached_type_info.CachedEntityTypeInfo;
+import dev.sanda.datafi.reflection.cached_type_info.ResolvedEntityPath;
+import dev.sanda.datafi.reflection.runtime_services.FetchPlanResolver;
 import dev.sanda.datafi.reflection.runtime_services.ReflectionCache;
+import dev.sanda.datafi.service.count.CountEstimate;
+import dev.sanda.datafi.service.count.CountService;
+import dev.sanda.datafi.service.prefetch.PagePrefetcher;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.PostConstruct;
 import javax.persistence.*;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.PluralAttribute;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.IterableUtils;
+import org.hibernate.Session;
+import org.hibernate.proxy.HibernateProxy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Slf4j
@@ -67,6 +103,53 @@ public class DataManager<T> {
   @Autowired //autowiring daos via proxy because cannot autowire directly in abstract class
   private DaoCollector daoCollector;
 
+  @Autowired
+  private FetchPlanResolver fetchPlanResolver;
+
+  private static final String FETCH_GRAPH_HINT = "javax.persistence.fetchgraph";
+
+  private final Map<Method, Boolean> nativeQueryMethods =
+    new ConcurrentHashMap<>();
+
+  @Autowired
+  private InListChunkExecutor inListChunkExecutor;
+
+  @Setter
+  @Value("${datafi.prefetch-chunk-size:500}")
+  private int prefetchChunkSize;
+
+  @Autowired
+  private BulkInsertWriters bulkInsertWriters;
+
+  @Autowired
+  private JdbcQueriesRegistry jdbcQueriesRegistry;
+
+  @Autowired
+  private EntityWriteTracker entityWriteTracker;
+
+  @Autowired
+  private PagePrefetcher pagePrefetcher;
+
+  @Autowired
+  private CountService countService;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  //the chunk size in which the content of fetchAll pages is read
+  @Setter
+  @Value("${datafi.fetch-all.chunk-size:1000}")
+  private int fetchAllChunkSize;
+
+  @Setter
+  @Value("${datafi.bulk-insert.max-rows:1000}")
+  private int bulkInsertMaxRows;
+
+  //e.g. sql server allows up to 2100 bind parameters per statement
+  @Setter
+  @Value("${datafi.bulk-insert.max-parameters:2000}")
+  private int bulkInsertMaxParameters;
+
   /*@Autowired
     private EntityTypeRuntimeResolver<T> typeRuntimeResolver;*/
 
@@ -142,7 +225,12 @@ public class DataManager<T> {
   }
 
   public org.springframework.data.domain.Page findAll(Pageable pageable) {
-    final org.springframework.data.domain.Page all = dao.findAll(pageable);
+    final org.springframework.data.domain.Page all = pagePrefetcher.getPage(
+      clazz,
+      Collections.singletonList("findAll"),
+      pageable,
+      dao::findAll
+    );
     logInfo(
       "findAll(Pageable pageable)",
       "fetched {} {}, in {} pages",
@@ -165,8 +253,38 @@ public class DataManager<T> {
     return allById;
   }
 
+  /**
+   * Fetches by primitive long ids (e.g. for subtypes of LongIdPersistableEntity),
+   * de-duplicating them without boxing each id into a set first.
+   */
+  public List<T> findAllById(long... ids) {
+    final Class<?> idType = idJavaType();
+    if (
+      !idType.equals(long.class) && !idType.equals(Long.class)
+    ) throw new IllegalArgumentException(
+      clazzSimpleNamePlural +
+      " cannot be fetched by long ids, since their id type is " +
+      idType.getSimpleName()
+    );
+    final long[] sorted = ids.clone();
+    Arrays.sort(sorted);
+    final List<Long> distinct = new ArrayList<>(sorted.length);
+    for (int i = 0; i < sorted.length; i++) if (
+      i == 0 || sorted[i] != sorted[i - 1]
+    ) distinct.add(sorted[i]);
+    final List allById = dao.findAllById(distinct);
+    logInfo(
+      "findAllById(long... ids)",
+      "fetched {} {} by {} distinct ids",
+      allById.size(),
+      clazzSimpleNamePlural,
+      distinct.size()
+    );
+    return allById;
+  }
+
   public long count() {
-    final long count = dao.count();
+    final long count = countService.count(clazz, "count", dao::count);
     logInfo(
       "count()",
       "counted a total of {} {}",
@@ -382,6 +500,7 @@ public class DataManager<T> {
   }
 
   public <S extends T> long count(Example<S> example) {
+    //examples are probe entities, equal only by id, and hence aren't cached
     final long count = dao.count(example);
     logInfo(
       "count(Example<{}> example)",
@@ -430,6 +549,119 @@ public class DataManager<T> {
     }
   }
 
+  /**
+   * Same as {@link #findBy(String, Object)}, only fetching a single page of the
+   * matching entities.
+   */
+  public Page<T> findBy(
+    String attributeName,
+    Object attributeValue,
+    dev.sanda.datafi.dto.PageRequest request
+  ) {
+    final Class<?> attributeValueClass = attributeValue.getClass();
+    DatafiStaticUtils.validateSortByIfNonNull(
+      clazz,
+      request.getSortBy(),
+      reflectionCache
+    );
+    if (request.getFetchAll()) return findAllBy(
+      attributeName,
+      attributeValue,
+      request
+    );
+    Method methodToInvoke = getMethodToInvoke(
+      "findBy" + toPascalCase(attributeName),
+      new Class<?>[] { attributeValueClass, Pageable.class },
+      dao
+    );
+    Pageable paginator = DatafiStaticUtils.generatePageRequest(
+      request,
+      -1,
+      request.getSortBy()
+    );
+    final Function<Pageable, org.springframework.data.domain.Page<T>> pageLoader = pageable ->
+      pagePrefetcher.getPage(
+        clazz,
+        Arrays.asList(methodToInvoke.getName(), attributeValue),
+        pageable,
+        page ->
+          (org.springframework.data.domain.Page<T>) invoke(
+            methodToInvoke,
+            dao,
+            attributeValue,
+            page
+          )
+      );
+    val result = pageLoader.apply(paginator);
+    logInfo(
+      "findBy(String attributeName, {} attributeValue, PageRequest request)",
+      "found {} {} by field {} with matching value of {}",
+      attributeValueClass.getSimpleName(),
+      result.getTotalElements(),
+      clazzSimpleNamePlural,
+      attributeName,
+      attributeValue.toString()
+    );
+    return new Page<>(result);
+  }
+
+  /**
+   * @return a single page of all entities matching the given attribute value,
+   * counted once and read lazily in keyset chunks.
+   */
+  private Page<T> findAllBy(
+    String attributeName,
+    Object attributeValue,
+    dev.sanda.datafi.dto.PageRequest request
+  ) {
+    final Specification<T> matching = (root, query, builder) ->
+      builder.equal(root.get(attributeName), attributeValue);
+    final long totalCount = dao.count(matching);
+    logInfo(
+      "findBy(String attributeName, {} attributeValue, PageRequest request)",
+      "found {} {} by field {} with matching value of {}",
+      attributeValue.getClass().getSimpleName(),
+      totalCount,
+      clazzSimpleNamePlural,
+      attributeName,
+      attributeValue.toString()
+    );
+    return new Page<>(
+      totalCount,
+      () ->
+        keysetChunks(
+          matching,
+          request.getSortBy(),
+          request.getSortDirection(),
+          fetchAllChunkSize,
+          false
+        )
+    );
+  }
+
+  /**
+   * Streams the entities matching the given attribute value, rather than
+   * loading all of them at once. Must be called within a transaction, and the
+   * returned stream must be closed once consumed.
+   */
+  public Stream<T> streamBy(String attributeName, Object attributeValue) {
+    final Class<?> attributeValueClass = attributeValue.getClass();
+    Method methodToInvoke = getMethodToInvoke(
+      "streamBy" + toPascalCase(attributeName),
+      new Class<?>[] { attributeValueClass },
+      dao
+    );
+    logInfo(
+      "streamBy(String attributeName, {} attributeValue)",
+      "streaming {} by field {} with matching value of {}",
+      attributeValueClass.getSimpleName(),
+      clazzSimpleNamePlural,
+      attributeName,
+      attributeValue.toString()
+    );
+    return (Stream<T>) invoke(methodToInvoke, dao, attributeValue);
+  }
+
   public Optional<T> findByUnique(String attributeName, Object attributeValue) {
     try {
       final Class<?> attributeValueClass = attributeValue.getClass();
@@ -457,28 +689,223 @@ public class DataManager<T> {
   }
 
   public List<T> findAllBy(String attributeName, Object[] attributeValues) {
+    Class<?>[] params = new Class<?>[] { List.class };
+    String resolverName = "findAllBy" + toPascalCase(attributeName) + "In";
+    Method methodToInvoke = getMethodToInvoke(resolverName, params, dao);
+    //large value lists are split into chunks, so as to stay within database parameter limits
+    final List<T> result = inListChunkExecutor.execute(
+      Arrays.asList(attributeValues),
+      chunk -> (List<T>) invoke(methodToInvoke, dao, chunk)
+    );
+    logInfo(
+      "findAllBy(String attributeName, Object[] attributeValues)",
+      "found {} {} by {} provided attribute values",
+      result.size(),
+      clazzSimpleNamePlural,
+      attributeValues.length
+    );
+    return result;
+  }
+
+  /**
+   * Same as {@link #findAllBy(String, Object[])}, only with the results grouped
+   * by the value of the given attribute. Every one of the given values is mapped,
+   * even if no matching entities have been found.
+   */
+  public Map<Object, List<T>> findAllByAsMap(
+    String attributeName,
+    Object[] attributeValues
+  ) {
     try {
-      Class<?>[] params = new Class<?>[] { List.class };
-      String resolverName = "findAllBy" + toPascalCase(attributeName) + "In";
-      Method methodToInvoke = getMethodToInvoke(resolverName, params, dao);
-      final List<Object> attributeValuesAsList = Arrays.asList(attributeValues);
-      final List<T> result = (List<T>) methodToInvoke.invoke(
-        dao,
-        attributeValuesAsList
+      final Map<Object, List<T>> result = new LinkedHashMap<>();
+      for (Object value : attributeValues) result.putIfAbsent(
+        value,
+        new ArrayList<>()
       );
-      logInfo(
-        "findAllBy(String attributeName, Object[] attributeValues)",
-        "found {} {} by provided attribute values: {}",
-        result.size(),
-        clazzSimpleNamePlural,
-        Arrays.toString(attributeValues)
+      val attribute = cachedEntityTypeInfo.getFields().get(attributeName);
+      if (attribute == null) throw new IllegalArgumentException(
+        clazzSimpleName + " has no field named " + attributeName
       );
+      for (T entity : findAllBy(attributeName, attributeValues)) {
+        final Object value = attribute.getField().get(entity);
+        result.computeIfAbsent(value, v -> new ArrayList<>()).add(entity);
+      }
       return result;
-    } catch (Exception e) {
+    } catch (IllegalAccessException e) {
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * Checks for the existence of an entity with the given attribute value,
+   * without loading any entities. Applies to fields annotated with @FindBy,
+   * @FindAllBy or @FindByUnique.
+   */
+  public boolean existsBy(String attributeName, Object attributeValue) {
+    final Class<?> attributeValueClass = attributeValue.getClass();
+    Method methodToInvoke = getMethodToInvoke(
+      "existsBy" + toPascalCase(attributeName),
+      new Class<?>[] { attributeValueClass },
+      dao
+    );
+    final boolean exists = (boolean) invoke(
+      methodToInvoke,
+      dao,
+      attributeValue
+    );
+    logInfo(
+      "existsBy(String attributeName, {} attributeValue)",
+      exists
+        ? "validated existence of {} by field {} with matching value of {}"
+        : "determined non-existence of {} by field {} with matching value of {}",
+      attributeValueClass.getSimpleName(),
+      clazzSimpleName,
+      attributeName,
+      attributeValue.toString()
+    );
+    return exists;
+  }
+
+  public long countBy(String attributeName, Object attributeValue) {
+    final Class<?> attributeValueClass = attributeValue.getClass();
+    Method methodToInvoke = getMethodToInvoke(
+      "countBy" + toPascalCase(attributeName),
+      new Class<?>[] { attributeValueClass },
+      dao
+    );
+    final long count = countService.count(
+      clazz,
+      Arrays.asList(methodToInvoke.getName(), attributeValue),
+      () -> (long) invoke(methodToInvoke, dao, attributeValue)
+    );
+    logInfo(
+      "countBy(String attributeName, {} attributeValue)",
+      "counted {} {} by field {} with matching value of {}",
+      attributeValueClass.getSimpleName(),
+      count,
+      clazzSimpleNamePlural,
+      attributeName,
+      attributeValue.toString()
+    );
+    return count;
+  }
+
+  public long countAllBy(String attributeName, Object[] attributeValues) {
+    Method methodToInvoke = getMethodToInvoke(
+      "countBy" + toPascalCase(attributeName) + "In",
+      new Class<?>[] { List.class },
+      dao
+    );
+    //the chunks are disjoint, so their counts can simply be summed
+    final long count = inListChunkExecutor
+      .execute(
+        Arrays.asList(attributeValues),
+        chunk ->
+          Collections.singletonList((Long) invoke(methodToInvoke, dao, chunk))
+      )
+      .stream()
+      .mapToLong(Long::longValue)
+      .sum();
+    logInfo(
+      "countAllBy(String attributeName, Object[] attributeValues)",
+      "counted {} {} by {} provided attribute values",
+      count,
+      clazzSimpleNamePlural,
+      attributeValues.length
+    );
+    return count;
+  }
+
+  /**
+   * Same as {@link #findBy(String, Object)}, only selecting just the columns
+   * required by the given projection (an interface or DTO class).
+   */
+  public <P> List<P> findBy(
+    String attributeName,
+    Object attributeValue,
+    Class<P> projection
+  ) {
+    final Class<?> attributeValueClass = attributeValue.getClass();
+    Method methodToInvoke = getMethodToInvoke(
+      "findBy" + toPascalCase(attributeName),
+      new Class<?>[] { attributeValueClass, Class.class },
+      dao
+    );
+    final List<P> result = (List<P>) invoke(
+      methodToInvoke,
+      dao,
+      attributeValue,
+      projection
+    );
+    logInfo(
+      "findBy(String attributeName, {} attributeValue, Class<{}> projection)",
+      "found {} {} by field {} with matching value of {}",
+      attributeValueClass.getSimpleName(),
+      projection.getSimpleName(),
+      result.size(),
+      clazzSimpleNamePlural,
+      attributeName,
+      attributeValue.toString()
+    );
+    return result;
+  }
+
+  public <P> Optional<P> findByUnique(
+    String attributeName,
+    Object attributeValue,
+    Class<P> projection
+  ) {
+    final Class<?> attributeValueClass = attributeValue.getClass();
+    Method methodToInvoke = getMethodToInvoke(
+      "findBy" + toPascalCase(attributeName),
+      new Class<?>[] { attributeValueClass, Class.class },
+      dao
+    );
+    final Optional<P> result = (Optional<P>) invoke(
+      methodToInvoke,
+      dao,
+      attributeValue,
+      projection
+    );
+    logInfo(
+      "findByUnique(String attributeName, {} attributeValue, Class<{}> projection)",
+      result.isPresent()
+        ? "found {} by field {} with matching value of {}"
+        : "could not find {} by field {} with matching value of {}",
+      attributeValueClass.getSimpleName(),
+      projection.getSimpleName(),
+      clazzSimpleName,
+      attributeName,
+      attributeValue.toString()
+    );
+    return result;
+  }
+
+  public <P> List<P> findAllBy(
+    String attributeName,
+    Object[] attributeValues,
+    Class<P> projection
+  ) {
+    Method methodToInvoke = getMethodToInvoke(
+      "findAllBy" + toPascalCase(attributeName) + "In",
+      new Class<?>[] { List.class, Class.class },
+      dao
+    );
+    final List<P> result = inListChunkExecutor.execute(
+      Arrays.asList(attributeValues),
+      chunk -> (List<P>) invoke(methodToInvoke, dao, chunk, projection)
+    );
+    logInfo(
+      "findAllBy(String attributeName, Object[] attributeValues, Class<{}> projection)",
+      "found {} {} by {} provided attribute values",
+      projection.getSimpleName(),
+      result.size(),
+      clazzSimpleNamePlural,
+      attributeValues.length
+    );
+    return result;
+  }
+
   public Optional<T> findOne(Specification<T> specification) {
     final Optional result = dao.findOne(specification);
     logInfo(
@@ -507,9 +934,14 @@ public class DataManager<T> {
     Specification<T> specification,
     Pageable pageable
   ) {
-    final org.springframework.data.domain.Page all = dao.findAll(
-      specification,
-      pageable
+    //lambda specifications can't be matched by value, and aren't prefetched
+    final org.springframework.data.domain.Page all = pagePrefetcher.getPage(
+      clazz,
+      isComparableByValue(specification)
+        ? Arrays.asList("findAll", specification)
+        : null,
+      pageable,
+      page -> dao.findAll(specification, page)
     );
     logInfo(
       "findAll(Specification<{}> specification, Pageable pageable)",
@@ -522,6 +954,19 @@ public class DataManager<T> {
     return all;
   }
 
+  private static boolean isComparableByValue(Object key) {
+    if (key == null) return true;
+    try {
+      return !key
+        .getClass()
+        .getMethod("equals", Object.class)
+        .getDeclaringClass()
+        .equals(Object.class);
+    } catch (NoSuchMethodException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   public List<T> findAll(Specification<T> specification, Sort sort) {
     final List all = dao.findAll(specification, sort);
     logInfo(
@@ -535,8 +980,210 @@ public class DataManager<T> {
     return all;
   }
 
+  /**
+   * Iterates over all entities matching the given (nullable) specification in
+   * chunks of the given size, ordered by id. Each chunk is read with a keyset
+   * predicate on the last id of the previous one rather than with an offset,
+   * so reading deep into the results costs the same as reading their start.
+   * Within a transaction, the entities of each chunk are detached once the
+   * next one is read, so as to keep the persistence context bounded.
+   */
+  public Iterator<List<T>> findAllInChunks(
+    Specification<T> specification,
+    int chunkSize
+  ) {
+    if (chunkSize <= 0) throw new IllegalArgumentException(
+      "Invalid chunk size: " + chunkSize
+    );
+    logInfo(
+      "findAllInChunks(Specification<{}> specification, int chunkSize)",
+      "reading {} in chunks of {}",
+      clazzSimpleName,
+      clazzSimpleNamePlural,
+      chunkSize
+    );
+    return keysetChunks(
+      specification,
+      null,
+      Sort.Direction.ASC,
+      chunkSize,
+      true
+    );
+  }
+
+  /**
+   * Same as {@link #findAllInChunks(Specification, int)}, only ordered by the
+   * given (validated, nullable) sort key before the id - in which case the
+   * keyset predicate is on both, and entities whose sort key is null are read
+   * last.
+   */
+  private Iterator<List<T>> keysetChunks(
+    Specification<T> specification,
+    String sortBy,
+    Sort.Direction direction,
+    int chunkSize,
+    boolean detachPrevious
+  ) {
+    final Field idField = cachedEntityTypeInfo.getIdField();
+    final Class<?> idType = idJavaType();
+    //simple ids are embeddables, and hence keyed on their wrapped long
+    final boolean isSimpleId = idType.equals(SimpleId.class);
+    if (
+      !isSimpleId &&
+      !idType.isPrimitive() &&
+      !Comparable.class.isAssignableFrom(idType)
+    ) throw new IllegalArgumentException(
+      clazzSimpleNamePlural +
+      " cannot be read in chunks, since their ids are not comparable"
+    );
+    return new Iterator<List<T>>() {
+      private List<T> previous = Collections.emptyList();
+      private List<T> next;
+      private Object lastSortValue;
+      private Object lastId;
+      private boolean readingNullSortValues = false;
+      private boolean exhausted = false;
+
+      @Override
+      public boolean hasNext() {
+        if (next == null && !exhausted) {
+          if (
+            detachPrevious && entityManager.isJoinedToTransaction()
+          ) previous.forEach(entityManager::detach);
+          next = readChunk();
+        }
+        return next != null && !next.isEmpty();
+      }
+
+      @Override
+      public List<T> next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        final List<T> chunk = next;
+        previous = chunk;
+        next = null;
+        return chunk;
+      }
+
+      private List<T> readChunk() {
+        final List<Tuple> rows = chunkAfter(
+          specification,
+          sortBy,
+          readingNullSortValues,
+          direction,
+          idField.getName(),
+          isSimpleId,
+          lastSortValue,
+          lastId,
+          chunkSize
+        );
+        if (!rows.isEmpty()) {
+          final Tuple last = rows.get(rows.size() - 1);
+          lastSortValue = last.get(1);
+          lastId = last.get(2);
+        }
+        if (rows.size() < chunkSize) {
+          if (sortBy == null || readingNullSortValues) exhausted = true; else {
+            readingNullSortValues = true;
+            lastId = null;
+            if (rows.isEmpty()) return readChunk();
+          }
+        }
+        return rows
+          .stream()
+          .map(row -> row.get(0, clazz))
+          .collect(Collectors.toList());
+      }
+    };
+  }
+
+  /**
+   * @return the path of the given (validated) sort key, joining associations
+   * as outer joins, such that entities referencing none aren't filtered out.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Path<Comparable> keysetPathOf(Root<T> root, String sortBy) {
+    final ResolvedEntityPath resolvedPath = DatafiStaticUtils.resolvePath(
+      clazz,
+      sortBy,
+      reflectionCache
+    );
+    final String[] segments = resolvedPath.getSegments();
+    Path<?> path = root;
+    for (int i = 0; i < segments.length; i++) path =
+      resolvedPath.getIsJoin()[i] && path instanceof From
+        ? ((From<?, ?>) path).join(segments[i], JoinType.LEFT)
+        : path.get(segments[i]);
+    return (Path<Comparable>) path;
+  }
+
+  /**
+   * @return the rows - of the entity, its sort key and its id - of the chunk
+   * following the given keyset. Given a sort key, only entities for which it's
+   * either non null or - ordered by id alone - null are read.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private List<Tuple> chunkAfter(
+    Specification<T> specification,
+    String sortBy,
+    boolean nullSortValues,
+    Sort.Direction direction,
+    String idFieldName,
+    boolean isSimpleId,
+    Object lastSortValue,
+    Object lastId,
+    int chunkSize
+  ) {
+    val builder = entityManager.getCriteriaBuilder();
+    val query = builder.createTupleQuery();
+    val root = query.from(clazz);
+    final Path<Comparable> keyPath = isSimpleId
+      ? root.get(idFieldName).get("id")
+      : root.get(idFieldName);
+    final Path<Comparable> sortPath = sortBy != null
+      ? keysetPathOf(root, sortBy)
+      : keyPath;
+    val predicates = new ArrayList<Predicate>();
+    if (specification != null) {
+      val predicate = specification.toPredicate(root, query, builder);
+      if (predicate != null) predicates.add(predicate);
+    }
+    if (sortBy != null && !nullSortValues) {
+      predicates.add(builder.isNotNull(sortPath));
+      if (lastId != null) predicates.add(
+        builder.or(
+          direction.isAscending()
+            ? builder.greaterThan(sortPath, (Comparable) lastSortValue)
+            : builder.lessThan(sortPath, (Comparable) lastSortValue),
+          builder.and(
+            builder.equal(sortPath, lastSortValue),
+            builder.greaterThan(keyPath, (Comparable) lastId)
+          )
+        )
+      );
+      query.orderBy(
+        direction.isAscending()
+          ? builder.asc(sortPath)
+          : builder.desc(sortPath),
+        builder.asc(keyPath)
+      );
+    } else {
+      if (sortBy != null) predicates.add(builder.isNull(sortPath));
+      if (lastId != null) predicates.add(
+        builder.greaterThan(keyPath, (Comparable) lastId)
+      );
+      query.orderBy(builder.asc(keyPath));
+    }
+    query
+      .multiselect(root, sortPath, keyPath)
+      .where(predicates.toArray(new Predicate[0]));
+    return entityManager
+      .createQuery(query)
+      .setMaxResults(chunkSize)
+      .getResultList();
+  }
+
   public long count(Specification<T> specification) {
-    final long count = dao.count(specification);
+    final long count = countEstimate(specification).getCount();
     logInfo(
       "count(Specification<{}> specification)",
       "counted {} {} by provided specfication",
@@ -547,12 +1194,510 @@ public class DataManager<T> {
     return count;
   }
 
+  /**
+   * Counts the entities matching the given (nullable) specification, possibly
+   * from the count cache - in which case the estimate reports how stale it may
+   * be. Specifications are only cached if they're comparable by value, which
+   * lambdas aren't.
+   */
+  public CountEstimate countEstimate(Specification<T> specification) {
+    return countService.countEstimate(
+      clazz,
+      isComparableByValue(specification)
+        ? Arrays.asList("count", specification)
+        : null,
+      () -> dao.count(specification)
+    );
+  }
+
+  /**
+   * Estimates the total number of entities from the database's table
+   * statistics rather than counting them, which is far cheaper for large
+   * tables. Falls back to an exact count where no statistics are available.
+   */
+  public CountEstimate approximateCount() {
+    final CountEstimate estimate = countService.approximateCount(
+      clazz,
+      dao::count
+    );
+    logInfo(
+      "approximateCount()",
+      "estimated a total of {} {}: {}",
+      estimate.getCount(),
+      clazzSimpleNamePlural,
+      estimate
+    );
+    return estimate;
+  }
+
+  /**
+   * Finds the entities created within [from, to), based on the creation time
+   * encoded within ids generated by IdFactory - i.e. as a primary key range scan.
+   * Only applicable to entities with a SimpleId or (primitive or boxed) long id
+   * which has been generated by IdFactory.
+   */
+  public org.springframework.data.domain.Page<T> findCreatedBetween(
+    Instant from,
+    Instant to,
+    Pageable pageable
+  ) {
+    final Specification<T> createdBetween = (root, query, builder) -> {
+      final Path<Long> idPath = generatedIdPath(root);
+      return builder.and(
+        builder.greaterThanOrEqualTo(idPath, IdFactory.lowerBoundIdAt(from)),
+        builder.lessThan(idPath, IdFactory.lowerBoundIdAt(to))
+      );
+    };
+    final org.springframework.data.domain.Page all = dao.findAll(
+      createdBetween,
+      pageable
+    );
+    logInfo(
+      "findCreatedBetween(Instant from, Instant to, Pageable pageable)",
+      "found {} {} created between {} and {}",
+      all.getTotalElements(),
+      clazzSimpleNamePlural,
+      from,
+      to
+    );
+    return all;
+  }
+
+  private Path<Long> generatedIdPath(Root<T> root) {
+    final Field idField = cachedEntityTypeInfo.getIdField();
+    final Class<?> idType = idJavaType();
+    if (idType.equals(SimpleId.class)) return root
+      .get(idField.getName())
+      .get("id");
+    if (idType.equals(long.class) || idType.equals(Long.class)) return root.get(
+      idField.getName()
+    );
+    throw new IllegalArgumentException(
+      clazzSimpleName +
+      " does not have a generated id from which its creation time can be derived"
+    );
+  }
+
+  /**
+   * @return the resolved type of the entity's id - which the id field's type
+   * may not reflect, e.g. given the generic id of BasePersistableEntity.
+   */
+  private Class<?> idJavaType() {
+    return entityManager.getMetamodel().entity(clazz).getIdType().getJavaType();
+  }
+
+  private boolean isNativeQuery(Method daoMethod) {
+    return nativeQueryMethods.computeIfAbsent(
+      daoMethod,
+      method -> {
+        val query = AnnotationUtils.findAnnotation(
+          method,
+          org.springframework.data.jpa.repository.Query.class
+        );
+        return query != null && query.nativeQuery();
+      }
+    );
+  }
+
+  /**
+   * @return the (already validated) sort key as sorted by the given dao method
+   * - i.e. its column, given a native query.
+   */
+  private String sortPropertyOf(String sortBy, Method daoMethod) {
+    if (sortBy == null || !isNativeQuery(daoMethod)) return sortBy;
+    final String column = DatafiStaticUtils
+      .resolvePath(clazz, sortBy, reflectionCache)
+      .getColumnName();
+    if (column == null) throw new IllegalArgumentException(
+      "Cannot sort the results of a native query by " +
+      sortBy +
+      ", as it isn't a column of " +
+      clazzSimpleNamePlural
+    );
+    return column;
+  }
+
+  /**
+   * @return the path the given property of a page query's DTO is selected
+   * from.
+   */
+  private static String dtoSortPathOf(
+    String sortBy,
+    DtoSortKeys dtoSortKeys,
+    String queryName
+  ) {
+    if (sortBy == null) return null;
+    final int index = Arrays.asList(dtoSortKeys.properties()).indexOf(sortBy);
+    if (index == -1) throw new IllegalArgumentException(
+      "Cannot sort the results of query '" +
+      queryName +
+      "' by " +
+      sortBy +
+      ", as it isn't a property selected from a path"
+    );
+    return dtoSortKeys.paths()[index];
+  }
+
+  /**
+   * @return the id path - or column, given a native query - by which to break
+   * sort ties, such that the lazily read chunks of a fetchAll page don't
+   * overlap.
+   */
+  private String idTieBreakerOf(Method daoMethod) {
+    final Field idField = cachedEntityTypeInfo.getIdField();
+    //simple ids are embeddables, mapped onto the "id" column of their long
+    if (idJavaType().equals(SimpleId.class)) return isNativeQuery(daoMethod)
+      ? "id"
+      : idField.getName() + ".id";
+    return isNativeQuery(daoMethod)
+      ? DatafiStaticUtils.columnNameOf(idField)
+      : idField.getName();
+  }
+
+  public Optional<T> findById(Object id, String fetchPlan) {
+    final T fetched = entityManager.find(
+      clazz,
+      id,
+      Collections.singletonMap(FETCH_GRAPH_HINT, entityGraphOf(fetchPlan))
+    );
+    logInfo(
+      "findById({} id, String fetchPlan)",
+      fetched != null
+        ? "fetched {} by id {} with fetch plan '{}'"
+        : "could not find {} by id {} with fetch plan '{}'",
+      idTypeSimpleName,
+      clazzSimpleName,
+      id,
+      fetchPlan
+    );
+    return Optional.ofNullable(fetched);
+  }
+
+  public List<T> findAll(Specification<T> specification, String fetchPlan) {
+    return findAll(specification, Sort.unsorted(), fetchPlan);
+  }
+
+  public List<T> findAll(
+    Specification<T> specification,
+    Sort sort,
+    String fetchPlan
+  ) {
+    final List<T> all = fetchPlanQuery(specification, sort, fetchPlan)
+      .getResultList();
+    logInfo(
+      "findAll(Specification<{}> specification, Sort sort, String fetchPlan)",
+      "found {} {} by provided specification with fetch plan '{}'",
+      clazzSimpleName,
+      all.size(),
+      clazzSimpleNamePlural,
+      fetchPlan
+    );
+    return all;
+  }
+
+  public org.springframework.data.domain.Page<T> findAll(
+    Specification<T> specification,
+    Pageable pageable,
+    String fetchPlan
+  ) {
+    final List<T> content = pageable.isPaged()
+      ? fetchPlanPage(specification, pageable, fetchPlan)
+      : fetchPlanQuery(specification, pageable.getSort(), fetchPlan)
+        .getResultList();
+    final long total = pageable.isPaged()
+      ? countEstimate(specification).getCount()
+      : content.size();
+    val all = new PageImpl<>(content, pageable, total);
+    logInfo(
+      "findAll(Specification<{}> specification, Pageable pageable, String fetchPlan)",
+      "found {} {} by provided specification in {} pages with fetch plan '{}'",
+      clazzSimpleName,
+      all.getTotalElements(),
+      clazzSimpleNamePlural,
+      all.getTotalPages(),
+      fetchPlan
+    );
+    return all;
+  }
+
+  /**
+   * @return the ids of the given page, read without the fetch plan, which is
+   * then applied to a second query by those ids - as hibernate paginates in
+   * memory once a fetch plan includes collections.
+   */
+  private List<T> fetchPlanPage(
+    Specification<T> specification,
+    Pageable pageable,
+    String fetchPlan
+  ) {
+    val builder = entityManager.getCriteriaBuilder();
+    val idQuery = builder.createQuery(Object.class);
+    val root = idQuery.from(clazz);
+    idQuery.select(idPathOf(root));
+    if (specification != null) {
+      val predicate = specification.toPredicate(root, idQuery, builder);
+      if (predicate != null) idQuery.where(predicate);
+    }
+    if (pageable.getSort().isSorted()) idQuery.orderBy(
+      QueryUtils.toOrders(pageable.getSort(), root, builder)
+    );
+    final List<Object> ids = entityManager
+      .createQuery(idQuery)
+      .setFirstResult((int) pageable.getOffset())
+      .setMaxResults(pageable.getPageSize())
+      .getResultList();
+    if (ids.isEmpty()) return new ArrayList<>();
+    final Map<Object, T> fetched = new HashMap<>();
+    fetchPlanQuery(
+      (byId, query, criteriaBuilder) -> idPathOf(byId).in(ids),
+      Sort.unsorted(),
+      fetchPlan
+    )
+      .getResultList()
+      .forEach(entity -> fetched.put(idValueOf(entity), entity));
+    return ids
+      .stream()
+      .map(fetched::get)
+      .filter(Objects::nonNull)
+      .collect(Collectors.toList());
+  }
+
+  //simple ids are embeddables, and hence keyed on their wrapped long
+  private Path<Object> idPathOf(Root<T> root) {
+    final String idFieldName = cachedEntityTypeInfo.getIdField().getName();
+    return idJavaType().equals(SimpleId.class)
+      ? root.get(idFieldName).get("id")
+      : root.get(idFieldName);
+  }
+
+  private Object idValueOf(T entity) {
+    final Object id = cachedEntityTypeInfo.getId(entity);
+    return id instanceof SimpleId ? ((SimpleId) id).getId() : id;
+  }
+
+  private TypedQuery<T> fetchPlanQuery(
+    Specification<T> specification,
+    Sort sort,
+    String fetchPlan
+  ) {
+    val builder = entityManager.getCriteriaBuilder();
+    val query = builder.createQuery(clazz);
+    val root = query.from(clazz);
+    query.select(root);
+    if (specification != null) {
+      val predicate = specification.toPredicate(root, query, builder);
+      if (predicate != null) query.where(predicate);
+    }
+    if (sort.isSorted()) query.orderBy(
+      QueryUtils.toOrders(sort, root, builder)
+    );
+    return entityManager
+      .createQuery(query)
+      .setHint(FETCH_GRAPH_HINT, entityGraphOf(fetchPlan));
+  }
+
+  private EntityGraph<T> entityGraphOf(String fetchPlan) {
+    return fetchPlanResolver.toEntityGraph(entityManager, clazz, fetchPlan);
+  }
+
+  /**
+   * Loads the given (possibly nested, dot separated) associations of all of the
+   * given results up front, using a single "IN" query per association path and
+   * chunk of ids - rather than a separate query per result once each association
+   * is lazily accessed.
+   */
+  public List<T> prefetch(List<T> results, String... associationPaths) {
+    for (String associationPath : associationPaths) prefetch(
+      clazz,
+      results,
+      associationPath.split("\\."),
+      0
+    );
+    logInfo(
+      "prefetch(List<{}> results, String... associationPaths)",
+      "prefetched {} of {} {}",
+      clazzSimpleName,
+      Arrays.toString(associationPaths),
+      results.size(),
+      clazzSimpleNamePlural
+    );
+    return results;
+  }
+
+  private void prefetch(
+    Class<?> type,
+    Collection<?> parents,
+    String[] segments,
+    int depth
+  ) {
+    if (parents.isEmpty()) return;
+    final String association = segments[depth];
+    val typeInfo = reflectionCache.getEntitiesCache().get(type.getSimpleName());
+    val cachedField = typeInfo.getFields().get(association);
+    if (cachedField == null) throw new IllegalArgumentException(
+      "Cannot prefetch '" +
+      association +
+      "', " +
+      type.getSimpleName() +
+      " has no such field"
+    );
+    val field = cachedField.getField();
+    val persistenceUnitUtil = entityManager
+      .getEntityManagerFactory()
+      .getPersistenceUnitUtil();
+    Map<Object, List<Object>> parentsById = new LinkedHashMap<>();
+    for (Object parent : parents) parentsById
+      .computeIfAbsent(
+        persistenceUnitUtil.getIdentifier(parent),
+        id -> new ArrayList<>()
+      )
+      .add(parent);
+    final String jpql = String.format(
+      "SELECT DISTINCT e FROM %s e LEFT JOIN FETCH e.%s WHERE e.%s IN :ids",
+      entityManager.getMetamodel().entity(type).getName(),
+      association,
+      typeInfo.getIdField().getName()
+    );
+    val associated = new ArrayList<Object>();
+    try {
+      for (List<Object> ids : Lists.partition(
+        new ArrayList<>(parentsById.keySet()),
+        prefetchChunkSize
+      )) {
+        val loaded = entityManager
+          .createQuery(jpql)
+          .setParameter("ids", ids)
+          .getResultList();
+        for (Object loadedParent : loaded) {
+          val value = field.get(deProxify(loadedParent));
+          //detached parents are populated with the now initialized association
+          for (Object parent : parentsById.get(
+            persistenceUnitUtil.getIdentifier(loadedParent)
+          )) if (
+            parent != loadedParent && !(parent instanceof HibernateProxy)
+          ) field.set(parent, value);
+          if (value instanceof Collection) associated.addAll(
+            (Collection) value
+          ); else if (value instanceof Map) associated.addAll(
+            ((Map) value).values()
+          ); else if (value != null) associated.add(value);
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+    if (depth + 1 < segments.length) prefetch(
+      associatedType(type, association),
+      associated,
+      segments,
+      depth + 1
+    );
+  }
+
+  private Class<?> associatedType(Class<?> type, String association) {
+    val attribute = entityManager
+      .getMetamodel()
+      .managedType(type)
+      .getAttribute(association);
+    return attribute instanceof PluralAttribute
+      ? ((PluralAttribute) attribute).getElementType().getJavaType()
+      : attribute.getJavaType();
+  }
+
+  /**
+   * Inserts the given (new) entities via native multi-row INSERT statements,
+   * using the entity's generated {@link BulkInsertWriter}. Bypasses the
+   * persistence context entirely - i.e. the entities aren't managed
+   * afterwards, and no cascading or entity listeners apply beyond the
+   * entity's own public @PrePersist callbacks. Intended for large loads of
+   * append only entities. Runs within the caller's transaction, or within a
+   * new one if there is none.
+   *
+   * @return the number of inserted rows
+   */
+  public int insertAllFast(List<T> entities) {
+    if (entities.isEmpty()) return 0;
+    //as hibernate's inserts would, see NodeIdLeaseGuard
+    if (
+      idJavaType().equals(SimpleId.class) ||
+      LongIdPersistableEntity.class.isAssignableFrom(clazz)
+    ) IdFactory.verifyNodeIdIsHeld();
+    final BulkInsertWriter<T> writer = bulkInsertWriters.forType(clazz);
+    final int columnCount = writer.getColumns().size();
+    final int rowsPerStatement = Math.max(
+      1,
+      Math.min(bulkInsertMaxRows, bulkInsertMaxParameters / columnCount)
+    );
+    final int insertedRows = new TransactionTemplate(transactionManager)
+      .execute(
+        status -> {
+          //pending changes of the persistence context precede the inserts
+          entityManager.flush();
+          return entityManager
+            .unwrap(Session.class)
+            .doReturningWork(
+              connection ->
+                insertInChunks(connection, writer, entities, rowsPerStatement)
+            );
+        }
+      );
+    evictCaches();
+    logInfo(
+      "insertAllFast(List<T> entities)",
+      "inserted {} {}",
+      insertedRows,
+      clazzSimpleNamePlural
+    );
+    return insertedRows;
+  }
+
+  private int insertInChunks(
+    Connection connection,
+    BulkInsertWriter<T> writer,
+    List<T> entities,
+    int rowsPerStatement
+  ) throws SQLException {
+    final int columnCount = writer.getColumns().size();
+    int insertedRows = 0;
+    PreparedStatement fullChunkStatement = null;
+    try {
+      for (List<T> chunk : Lists.partition(entities, rowsPerStatement)) {
+        //statements of a full chunk's size are reused across chunks
+        final boolean isFullChunk = chunk.size() == rowsPerStatement;
+        if (isFullChunk && fullChunkStatement == null) fullChunkStatement =
+          connection.prepareStatement(writer.insertStatement(rowsPerStatement));
+        final PreparedStatement statement = isFullChunk
+          ? fullChunkStatement
+          : connection.prepareStatement(writer.insertStatement(chunk.size()));
+        try {
+          for (int i = 0; i < chunk.size(); i++) writer.bind(
+            chunk.get(i),
+            statement,
+            i * columnCount + 1
+          );
+          insertedRows += statement.executeUpdate();
+        } finally {
+          if (!isFullChunk) statement.close();
+        }
+      }
+    } finally {
+      if (fullChunkStatement != null) fullChunkStatement.close();
+    }
+    return insertedRows;
+  }
+
   public <TResult> TResult callQuery(String queryName, Object... args) {
     try {
       Class<?>[] params = new Class<?>[args.length];
       for (int i = 0; i < args.length; i++) params[i] = args[i].getClass();
-      Method methodToInvoke = getMethodToInvoke(queryName, params, dao);
-      final TResult result = (TResult) methodToInvoke.invoke(dao, args);
+      //native queries mapped onto DTOs are run via jdbc rather than the dao
+      final JdbcQueries<T> jdbcQueries = jdbcQueriesRegistry.forType(clazz);
+      final Object target = jdbcQueries != null &&
+        jdbcQueries.getQueryNames().contains(queryName)
+        ? jdbcQueries
+        : dao;
+      Method methodToInvoke = getMethodToInvoke(queryName, params, target);
+      final TResult result = (TResult) methodToInvoke.invoke(target, args);
       logInfo(
         "callQuery(String queryName, Object... args)",
         Collection.class.isAssignableFrom(result.getClass())
@@ -573,6 +1718,128 @@ public class DataManager<T> {
     }
   }
 
+  /**
+   * Calls a custom query declared with {@code returns = ReturnMode.PAGE}.
+   * The query's own count query is used for the total count, and
+   * {@code fetchAll} reads every row into a single, lazily loaded page.
+   * Queries selecting a DTO are sorted by the DTO's own properties.
+   */
+  public <TResult> Page<TResult> callQuery(
+    String queryName,
+    dev.sanda.datafi.dto.PageRequest request,
+    Object... args
+  ) {
+    Class<?>[] params = new Class<?>[args.length + 1];
+    for (int i = 0; i < args.length; i++) params[i] = args[i].getClass();
+    params[args.length] = Pageable.class;
+    Method methodToInvoke = getMethodToInvoke(queryName, params, dao);
+    final DtoSortKeys dtoSortKeys = AnnotationUtils.findAnnotation(
+      methodToInvoke,
+      DtoSortKeys.class
+    );
+    final String sortBy;
+    if (dtoSortKeys == null) {
+      DatafiStaticUtils.validateSortByIfNonNull(
+        clazz,
+        request.getSortBy(),
+        reflectionCache
+      );
+      sortBy = sortPropertyOf(request.getSortBy(), methodToInvoke);
+    } else sortBy = dtoSortPathOf(request.getSortBy(), dtoSortKeys, queryName);
+    Pageable paginator = request.getFetchAll()
+      ? DatafiStaticUtils.generateFirstChunkRequest(
+        request,
+        fetchAllChunkSize,
+        sortBy,
+        idTieBreakerOf(methodToInvoke)
+      )
+      : DatafiStaticUtils.generatePageRequest(request, -1, sortBy);
+    val result = (org.springframework.data.domain.Page<TResult>) invoke(
+      methodToInvoke,
+      dao,
+      withPaginator(args, paginator)
+    );
+    logInfo(
+      "callQuery(String queryName, PageRequest request, Object... args)",
+      "fetched page {} of {} ({} records in total) with query '{}'",
+      result.getNumber(),
+      result.getTotalPages(),
+      result.getTotalElements(),
+      queryName
+    );
+    return pageOf(
+      request,
+      result,
+      pageable -> {
+        Method sliceMethod = getMethodToInvoke(
+          queryName + SLICE_VARIANT_SUFFIX,
+          params,
+          dao
+        );
+        return (Slice<TResult>) invoke(
+          sliceMethod,
+          dao,
+          withPaginator(args, pageable)
+        );
+      }
+    );
+  }
+
+  private static Object[] withPaginator(Object[] args, Pageable paginator) {
+    Object[] argsWithPaginator = Arrays.copyOf(args, args.length + 1);
+    argsWithPaginator[args.length] = paginator;
+    return argsWithPaginator;
+  }
+
+  /**
+   * Calls a custom query declared with {@code returns = ReturnMode.STREAM}.
+   * Must be called within a transaction, and the returned stream must be
+   * closed once consumed.
+   */
+  public <TResult> Stream<TResult> streamQuery(
+    String queryName,
+    Object... args
+  ) {
+    Class<?>[] params = new Class<?>[args.length];
+    for (int i = 0; i < args.length; i++) params[i] = args[i].getClass();
+    Method methodToInvoke = getMethodToInvoke(queryName, params, dao);
+    logInfo(
+      "streamQuery(String queryName, Object... args)",
+      "streaming results of query '{}'",
+      queryName
+    );
+    return (Stream<TResult>) invoke(methodToInvoke, dao, args);
+  }
+
+  /**
+   * Executes a custom UPDATE / DELETE query declared via @WithQuery,
+   * @WithNativeQuery or a query script, and evicts the entity type from the
+   * second level cache - as bulk updates bypass it.
+   *
+   * @return the number of affected rows
+   */
+  public int executeUpdate(String queryName, Object... args) {
+    Class<?>[] params = new Class<?>[args.length];
+    for (int i = 0; i < args.length; i++) params[i] = args[i].getClass();
+    Method methodToInvoke = getMethodToInvoke(queryName, params, dao);
+    final int affectedRows = (int) invoke(methodToInvoke, dao, args);
+    evictCaches();
+    logInfo(
+      "executeUpdate(String queryName, Object... args)",
+      "updated {} {} with query '{}'",
+      affectedRows,
+      clazzSimpleNamePlural,
+      queryName
+    );
+    return affectedRows;
+  }
+
+  private void evictCaches() {
+    entityManager.getEntityManagerFactory().getCache().evict(clazz);
+    //bulk writes bypass hibernate's event listeners
+    entityWriteTracker.onWrite(clazz);
+  }
+
   public T cascadeUpdate(T toUpdate, T source) {
     final T updated = (T) cascadeUpdateImpl(toUpdate, source);
     logInfo(
@@ -620,6 +1887,11 @@ public class DataManager<T> {
       toAddTo
     );
     invoke(existingCollectionSetter, toAddTo, existingCollection);
+    reflectionCache
+      .getEntitiesCache()
+      .get(toAddToClazzName)
+      .getRelationshipSyncronizer()
+      .syncBackpointers(toAddTo, fieldName, toAdd);
 
     toAddToDao.save(toAddTo);
     toAddDao.saveAll(toAdd);
@@ -675,6 +1947,11 @@ public class DataManager<T> {
       toAssociateWith
     );
     invoke(existingCollectionSetter, toAssociateWith, existingCollection);
+    reflectionCache
+      .getEntitiesCache()
+      .get(toAssociateWithClazzName)
+      .getRelationshipSyncronizer()
+      .syncBackpointers(toAssociateWith, fieldName, toAssociate);
     toAssociateWithDao.save(toAssociateWith);
 
     logInfo(
@@ -702,12 +1979,20 @@ public class DataManager<T> {
           updatedObj -> updatedObj
         )
       );
+    //backpointers of the updated entities are synchronized in bulk, per foreign key field
+    Map<Field, List<Object>> deferredBackpointers = new HashMap<>();
     for (T entityToUpdate : toUpdate) {
       T updatedEntity = updatedEntitiesMap.get(
         getId(entityToUpdate, reflectionCache)
       );
-      cascadeUpdateImpl(entityToUpdate, updatedEntity);
+      cascadeUpdateImpl(entityToUpdate, updatedEntity, deferredBackpointers);
     }
+    deferredBackpointers.forEach(
+      (foreignKeyField, children) ->
+        cachedEntityTypeInfo
+          .getRelationshipSyncronizer()
+          .syncBackpointers(children, foreignKeyField.getName())
+    );
     logInfo(
       "cascadeUpdateCollection(Iterable<{}> toUpdate, Iterable<{}> updated)",
       "cascade updated collection of {}",
@@ -719,6 +2004,14 @@ public class DataManager<T> {
   }
 
   private Object cascadeUpdateImpl(Object toUpdate, Object source) {
+    return cascadeUpdateImpl(toUpdate, source, null);
+  }
+
+  private Object cascadeUpdateImpl(
+    Object toUpdate,
+    Object source,
+    Map<Field, List<Object>> deferredBackpointers
+  ) {
     Class<?> currentClazz = toUpdate.getClass();
     String currentClazzName = currentClazz.getSimpleName();
     logInfo(
@@ -742,7 +2035,11 @@ public class DataManager<T> {
         if (isForeignKey(currentField, toUpdate)) {
           Object targetFieldToUpdateValue = currentField.get(toUpdate);
           cascadeUpdateImpl(targetFieldToUpdateValue, sourceFieldValue);
-          reflectionCache
+          if (deferredBackpointers != null) {
+            deferredBackpointers
+              .computeIfAbsent(currentField, f -> new ArrayList<>())
+              .add(toUpdate);
+          } else reflectionCache
             .getEntitiesCache()
             .get(currentField.getType().getSimpleName())
             .getRelationshipSyncronizer()
@@ -843,9 +2140,96 @@ public class DataManager<T> {
     return freeTextSearchBy(request, -1);
   }
 
+  /**
+   * Same as {@link #freeTextSearchBy(FreeTextSearchPageRequest)}, only using
+   * the given (non negative) total count of a fetchAll request as is, rather
+   * than counting the results.
+   */
   public Page<T> freeTextSearchBy(
     FreeTextSearchPageRequest request,
     long totalCount
+  ) {
+    return freeTextSearchImpl(request, totalCount, "freeTextSearch");
+  }
+
+  /**
+   * Same as {@link #freeTextSearchBy(FreeTextSearchPageRequest)}, only selecting
+   * just the columns of the given projection, as generated via @WithProjection.
+   */
+  public <P> Page<P> freeTextSearchBy(
+    FreeTextSearchPageRequest request,
+    Class<P> projection
+  ) {
+    return freeTextSearchImpl(
+      request,
+      -1,
+      "freeTextSearch" + projectionMethodSuffixOf(projection)
+    );
+  }
+
+  /**
+   * @return the given page, or - if all results were requested - a single
+   * page of all of them, the content of which is read lazily in chunks.
+   */
+  private <R> Page<R> pageOf(
+    dev.sanda.datafi.dto.PageRequest request,
+    org.springframework.data.domain.Page<R> result,
+    Function<Pageable, Slice<R>> sliceLoader
+  ) {
+    if (!request.getFetchAll()) return new Page<>(result);
+    return new Page<>(
+      result.getTotalElements(),
+      sliceChunksOf(result, sliceLoader)
+    );
+  }
+
+  /**
+   * @return the chunks of a fetchAll page, the first of which is the given one
+   * and the rest of which are read as slices - which, unlike pages, aren't
+   * counted anew for each chunk. Custom queries can't be given a keyset
+   * predicate, hence are read with offsets.
+   */
+  private static <R> Supplier<Iterator<List<R>>> sliceChunksOf(
+    Slice<R> firstChunk,
+    Function<Pageable, Slice<R>> sliceLoader
+  ) {
+    return () ->
+      new Iterator<List<R>>() {
+        private Slice<R> last;
+
+        @Override
+        public boolean hasNext() {
+          return last == null || last.hasNext();
+        }
+
+        @Override
+        public List<R> next() {
+          if (!hasNext()) throw new NoSuchElementException();
+          last =
+            last == null ? firstChunk : sliceLoader.apply(last.nextPageable());
+          return last.getContent();
+        }
+      };
+  }
+
+  private String projectionMethodSuffixOf(Class<?> projection) {
+    final GeneratedProjection generatedProjection = projection.getAnnotation(
+      GeneratedProjection.class
+    );
+    if (
+      generatedProjection == null || !generatedProjection.entity().equals(clazz)
+    ) throw new IllegalArgumentException(
+      projection.getName() +
+      " is not a generated projection of " +
+      clazzSimpleName
+    );
+    return "As" + DatafiStaticUtils.toPascalCase(generatedProjection.name());
+  }
+
+  private <R> Page<R> freeTextSearchImpl(
+    FreeTextSearchPageRequest request,
+    long totalCount,
+    String methodName
   ) {
     try {
       if (
@@ -860,20 +2244,53 @@ public class DataManager<T> {
         request.getSortBy(),
         reflectionCache
       );
-      Pageable paginator = DatafiStaticUtils.generatePageRequest(
-        request,
-        totalCount
-      );
       Method methodToInvoke = getMethodToInvoke(
-        "freeTextSearch",
+        methodName,
         new Class<?>[] { String.class, Pageable.class },
         dao
       );
-      val result = (org.springframework.data.domain.Page) methodToInvoke.invoke(
-        dao,
-        request.getSearchTerm(),
-        paginator
+      //native search queries are sorted by column rather than by field name
+      final String sortBy = sortPropertyOf(request.getSortBy(), methodToInvoke);
+      Pageable paginator = request.getFetchAll()
+        ? DatafiStaticUtils.generateFirstChunkRequest(
+          request,
+          fetchAllChunkSize,
+          sortBy,
+          idTieBreakerOf(methodToInvoke)
+        )
+        : DatafiStaticUtils.generatePageRequest(request, -1, sortBy);
+      final Function<Pageable, Slice<R>> sliceLoader = pageable -> {
+        Method sliceMethod = getMethodToInvoke(
+          methodName + SLICE_VARIANT_SUFFIX,
+          new Class<?>[] { String.class, Pageable.class },
+          dao
+        );
+        return (Slice<R>) invoke(
+          sliceMethod,
+          dao,
+          request.getSearchTerm(),
+          pageable
+        );
+      };
+      //a given total count spares counting the results of fetchAll requests
+      if (request.getFetchAll() && totalCount >= 0) return new Page<>(
+        totalCount,
+        sliceChunksOf(sliceLoader.apply(paginator), sliceLoader)
       );
+      final Function<Pageable, org.springframework.data.domain.Page<R>> pageLoader = pageable ->
+        pagePrefetcher.getPage(
+          clazz,
+          Arrays.asList(methodName, request.getSearchTerm()),
+          pageable,
+          page ->
+            (org.springframework.data.domain.Page<R>) invoke(
+              methodToInvoke,
+              dao,
+              request.getSearchTerm(),
+              page
+            )
+        );
+      val result = pageLoader.apply(paginator);
       logInfo(
         "freeTextSearchBy(String searchTerm)",
         "found {} {} by searchTerm '{}'",
@@ -881,7 +2298,7 @@ public class DataManager<T> {
         clazzSimpleNamePlural,
         request.getSearchTerm()
       );
-      return new Page<>(result);
+      return pageOf(request, result, sliceLoader);
     } catch (Exception e) {
       logError(
         "freeTextSearchBy(String searchTerm, int offset, int limit, String sortBy, Sort.Direction sortDirection)",
@@ -0,0 +1,118 @@
+package dev.sanda.datafi.service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManagerFactory;
+import lombok.val;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps a write version per entity type, which is incremented whenever
+ * hibernate flushes an insert, update or delete of an entity of that type (or
+ * of a subtype thereof), as well as on bulk writes made via DataManager. Query
+ * results cached at a given version are stale once it has moved on.
+ * Writes made within a transaction increment the version once more after it
+ * commits, since results read between the flush and the commit don't see them.
+ */
+@Component
+public class EntityWriteTracker
+  implements
+    SmartInitializingSingleton,
+    PostInsertEventListener,
+    PostUpdateEventListener,
+    PostDeleteEventListener {
+
+  @Autowired
+  private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+  private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  public long versionOf(Class<?> entityType) {
+    final AtomicLong version = versions.get(entityType);
+    return version != null ? version.get() : 0;
+  }
+
+  public void onWrite(Class<?> entityType) {
+    increment(entityType);
+    if (
+      TransactionSynchronizationManager.isSynchronizationActive()
+    ) writtenWithinTransaction().add(entityType);
+  }
+
+  private void increment(Class<?> entityType) {
+    for (
+      Class<?> type = entityType;
+      type != null && !type.equals(Object.class);
+      type = type.getSuperclass()
+    ) versions.computeIfAbsent(type, t -> new AtomicLong()).incrementAndGet();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<Class<?>> writtenWithinTransaction() {
+    final Object bound = TransactionSynchronizationManager.getResource(this);
+    if (bound != null) return (Set<Class<?>>) bound;
+    final Set<Class<?>> types = new HashSet<>();
+    TransactionSynchronizationManager.bindResource(this, types);
+    TransactionSynchronizationManager.registerSynchronization(
+      new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCommit() {
+          types.forEach(EntityWriteTracker.this::increment);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(
+            EntityWriteTracker.this
+          );
+        }
+      }
+    );
+    return types;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    val factory = entityManagerFactory.getIfAvailable();
+    if (factory == null) return;
+    val registry = factory
+      .unwrap(SessionFactoryImplementor.class)
+      .getServiceRegistry()
+      .getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_INSERT, this);
+    registry.appendListeners(EventType.POST_UPDATE, this);
+    registry.appendListeners(EventType.POST_DELETE, this);
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    onWrite(event.getPersister().getMappedClass());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    onWrite(event.getPersister().getMappedClass());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    onWrite(event.getPersister().getMappedClass());
+  }
+
+  @Override
+  public boolean requiresPostCommitHanding(EntityPersister persister) {
+    return false;
+  }
+}
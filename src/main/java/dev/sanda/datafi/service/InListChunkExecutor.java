@@ -0,0 +1,121 @@
+package dev.sanda.datafi.service;
+
+import com.google.common.collect.Lists;
+import dev.sanda.datafi.service.statistics.OperationStatisticsCollector;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import lombok.Setter;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Splits the values of an "IN (...)" query into chunks of bounded size, so as
+ * to stay within database parameter limits, and merges the results. Unless an
+ * entity manager is bound to the calling thread, the chunks are queried in
+ * parallel within a bounded pool. Otherwise - i.e. within a transaction, or
+ * given open-session-in-view - they're queried sequentially, so that all of
+ * the results belong to the calling thread's persistence context.
+ */
+@Component
+public class InListChunkExecutor {
+
+  @Setter
+  @Value("${datafi.in-list-chunk-size:1000}")
+  private int chunkSize;
+
+  @Setter
+  @Value("${datafi.in-list-parallelism:4}")
+  private int parallelism;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private OperationStatisticsCollector statisticsCollector;
+
+  private volatile ExecutorService executor;
+
+  public <V, R> List<R> execute(
+    List<V> values,
+    Function<List<V>, List<R>> query
+  ) {
+    if (values.isEmpty()) return new ArrayList<>();
+    val distinctValues = new ArrayList<V>(new LinkedHashSet<>(values));
+    if (distinctValues.size() <= chunkSize) return query.apply(distinctValues);
+    val chunks = Lists.partition(distinctValues, chunkSize);
+    val results = new ArrayList<R>();
+    if (
+      parallelism <= 1 ||
+      TransactionSynchronizationManager.isActualTransactionActive() ||
+      TransactionSynchronizationManager.hasResource(entityManagerFactory)
+    ) {
+      chunks.forEach(chunk -> results.addAll(query.apply(chunk)));
+      return results;
+    }
+    val futures = new ArrayList<Future<List<R>>>(chunks.size());
+    chunks.forEach(
+      chunk ->
+        futures.add(
+          executor()
+            .submit(statisticsCollector.propagate(() -> query.apply(chunk)))
+        )
+    );
+    try {
+      for (Future<List<R>> future : futures) results.addAll(future.get());
+      return results;
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      if (
+        e.getCause() instanceof RuntimeException
+      ) throw (RuntimeException) e.getCause();
+      throw new RuntimeException(e.getCause());
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private ExecutorService executor() {
+    if (executor == null) {
+      synchronized (this) {
+        if (executor == null) {
+          val threadCount = new AtomicInteger();
+          executor =
+            new ThreadPoolExecutor(
+              parallelism,
+              parallelism,
+              60L,
+              TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(parallelism * 16),
+              runnable -> {
+                Thread thread = new Thread(
+                  runnable,
+                  "datafi-in-list-" + threadCount.incrementAndGet()
+                );
+                thread.setDaemon(true);
+                return thread;
+              },
+              //once the queue is full, the calling thread queries the chunk itself
+              new ThreadPoolExecutor.CallerRunsPolicy()
+            );
+        }
+      }
+    }
+    return executor;
+  }
+
+  @PreDestroy
+  private void shutdown() {
+    if (executor != null) executor.shutdownNow();
+  }
+}
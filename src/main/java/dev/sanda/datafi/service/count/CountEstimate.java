@@ -0,0 +1,66 @@
+package dev.sanda.datafi.service.count;
+
+import java.time.Instant;
+import lombok.Getter;
+
+/**
+ * A row count along with how (and when) it was obtained, and hence how stale
+ * it may be.
+ */
+@Getter
+public class CountEstimate {
+
+  public enum Source {
+    /**
+     * Counted just now.
+     */
+    EXACT,
+    /**
+     * Counted at {@link #getComputedAt()}, since which no writes to the entity
+     * type have been flushed via hibernate or made via DataManager. Writes
+     * made by other means show within {@link #getMaxStalenessMillis()}.
+     */
+    CACHED,
+    /**
+     * Read from the database's table statistics, which are only as fresh as
+     * its last analysis of the table - hence the staleness is unbounded.
+     */
+    APPROXIMATE,
+  }
+
+  private final long count;
+  private final Source source;
+  private final Instant computedAt;
+  private final Long maxStalenessMillis;
+
+  public CountEstimate(
+    long count,
+    Source source,
+    Instant computedAt,
+    Long maxStalenessMillis
+  ) {
+    this.count = count;
+    this.source = source;
+    this.computedAt = computedAt;
+    this.maxStalenessMillis = maxStalenessMillis;
+  }
+
+  public boolean isExact() {
+    return source != Source.APPROXIMATE;
+  }
+
+  @Override
+  public String toString() {
+    return (
+      "{count=" +
+      count +
+      ", source=" +
+      source +
+      ", computedAt=" +
+      computedAt +
+      ", maxStalenessMillis=" +
+      maxStalenessMillis +
+      "}"
+    );
+  }
+}
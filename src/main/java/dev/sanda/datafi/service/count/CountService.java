@@ -0,0 +1,238 @@
+package dev.sanda.datafi.service.count;
+
+import dev.sanda.datafi.service.EntityWriteTracker;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import javax.persistence.EntityManagerFactory;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caches the results of count queries per entity type and query key, for a
+ * bounded time and only for as long as no entity of that type is written -
+ * see {@link EntityWriteTracker}. Also estimates unfiltered counts from the
+ * database's table statistics, where the database keeps any.
+ * The cache is disabled by default, and enabled via
+ * "datafi.count-cache.enabled=true". Counts made within a transaction always
+ * bypass it, as they may have to reflect the transaction's own writes.
+ */
+@Slf4j
+@Component
+public class CountService {
+
+  @Getter
+  @Setter
+  @Value("#{new Boolean('${datafi.count-cache.enabled:false}')}")
+  private Boolean enabled;
+
+  @Setter
+  @Value("${datafi.count-cache.ttl-millis:30000}")
+  private long ttlMillis;
+
+  @Setter
+  @Value("${datafi.count-cache.max-entries:1000}")
+  private int maxEntries;
+
+  @Autowired
+  private EntityWriteTracker entityWriteTracker;
+
+  @Autowired
+  private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+  @Autowired
+  private ObjectProvider<JdbcTemplate> jdbcTemplate;
+
+  //access ordered, such that the least recently used counts are evicted first
+  private final LinkedHashMap<CountKey, CachedCount> cache = new LinkedHashMap<>(
+    16,
+    0.75f,
+    true
+  );
+
+  private final Map<Class<?>, String> tableNames = new ConcurrentHashMap<>();
+  private volatile String databaseProductName;
+
+  /**
+   * @param queryKey identifies the count query along with its arguments, and
+   * hence must implement equals and hashCode by value - or null if there's no
+   * such key, in which case the count isn't cached.
+   */
+  public long count(Class<?> entityType, Object queryKey, LongSupplier query) {
+    return countEstimate(entityType, queryKey, query).getCount();
+  }
+
+  public CountEstimate countEstimate(
+    Class<?> entityType,
+    Object queryKey,
+    LongSupplier query
+  ) {
+    if (
+      !enabled ||
+      queryKey == null ||
+      TransactionSynchronizationManager.isActualTransactionActive()
+    ) return new CountEstimate(
+      query.getAsLong(),
+      CountEstimate.Source.EXACT,
+      Instant.now(),
+      0L
+    );
+    val key = new CountKey(entityType, queryKey);
+    final CachedCount cached;
+    synchronized (cache) {
+      cached = cache.get(key);
+    }
+    if (cached != null && isValid(cached)) return new CountEstimate(
+      cached.count,
+      CountEstimate.Source.CACHED,
+      Instant.ofEpochMilli(cached.computedAt),
+      ttlMillis
+    );
+    //captured up front, as writes may be flushed while counting
+    final long writeVersion = entityWriteTracker.versionOf(entityType);
+    final long computedAt = System.currentTimeMillis();
+    final long count = query.getAsLong();
+    synchronized (cache) {
+      cache.put(
+        key,
+        new CachedCount(entityType, count, writeVersion, computedAt)
+      );
+      if (cache.size() > maxEntries) {
+        val eldest = cache.keySet().iterator();
+        eldest.next();
+        eldest.remove();
+      }
+    }
+    return new CountEstimate(
+      count,
+      CountEstimate.Source.EXACT,
+      Instant.ofEpochMilli(computedAt),
+      0L
+    );
+  }
+
+  /**
+   * Estimates the total row count of the given entity type's table from the
+   * database's statistics (PostgreSQL, MySQL / MariaDB, SQL Server and Oracle),
+   * falling back to the given exact count query where none are available.
+   */
+  public CountEstimate approximateCount(
+    Class<?> entityType,
+    LongSupplier exactCount
+  ) {
+    final Long approximate = approximateRowCountOf(entityType);
+    if (approximate == null) return countEstimate(
+      entityType,
+      "count",
+      exactCount
+    );
+    return new CountEstimate(
+      approximate,
+      CountEstimate.Source.APPROXIMATE,
+      Instant.now(),
+      null
+    );
+  }
+
+  private boolean isValid(CachedCount cached) {
+    return (
+      System.currentTimeMillis() - cached.computedAt < ttlMillis &&
+      cached.writeVersion == entityWriteTracker.versionOf(cached.entityType)
+    );
+  }
+
+  private Long approximateRowCountOf(Class<?> entityType) {
+    val template = jdbcTemplate.getIfAvailable();
+    if (template == null) return null;
+    try {
+      final String sql = statisticsQuery(template);
+      if (sql == null) return null;
+      final Long count = template.queryForObject(
+        sql,
+        Long.class,
+        tableNameOf(entityType)
+      );
+      //e.g. postgres reports -1 for tables which were never analyzed
+      return count != null && count >= 0 ? count : null;
+    } catch (DataAccessException e) {
+      log.debug(
+        "Could not read the table statistics of {}: {}",
+        entityType.getSimpleName(),
+        e.toString()
+      );
+      return null;
+    }
+  }
+
+  private String statisticsQuery(JdbcTemplate template) {
+    if (databaseProductName == null) databaseProductName =
+      template.execute(
+        (ConnectionCallback<String>) connection ->
+          connection.getMetaData().getDatabaseProductName()
+      );
+    final String product = databaseProductName.toLowerCase();
+    if (product.contains("postgres")) return (
+      "SELECT CAST(reltuples AS BIGINT) FROM pg_class " +
+      "WHERE oid = to_regclass(?)"
+    );
+    if (product.contains("mysql") || product.contains("mariadb")) return (
+      "SELECT table_rows FROM information_schema.tables " +
+      "WHERE table_schema = DATABASE() AND table_name = ?"
+    );
+    if (product.contains("microsoft")) return (
+      "SELECT SUM(row_count) FROM sys.dm_db_partition_stats " +
+      "WHERE object_id = OBJECT_ID(?) AND index_id IN (0, 1)"
+    );
+    if (product.contains("oracle")) return (
+      "SELECT num_rows FROM user_tables WHERE table_name = UPPER(?)"
+    );
+    return null;
+  }
+
+  private String tableNameOf(Class<?> entityType) {
+    return tableNames.computeIfAbsent(
+      entityType,
+      type ->
+        (
+          (AbstractEntityPersister) entityManagerFactory
+            .getObject()
+            .unwrap(SessionFactoryImplementor.class)
+            .getMetamodel()
+            .entityPersister(type)
+        ).getTableName()
+    );
+  }
+
+  @EqualsAndHashCode
+  @RequiredArgsConstructor
+  private static class CountKey {
+
+    private final Class<?> entityType;
+    private final Object queryKey;
+  }
+
+  @RequiredArgsConstructor
+  private static class CachedCount {
+
+    private final Class<?> entityType;
+    private final long count;
+    private final long writeVersion;
+    private final long computedAt;
+  }
+}
@@ -0,0 +1,272 @@
+package dev.sanda.datafi.service.prefetch;
+
+import dev.sanda.datafi.service.EntityWriteTracker;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Speculatively fetches page N+1 of a paginated query in the background once
+ * page N has been served, into a short lived and size bounded buffer. The next
+ * request for the same query (as identified by its entity type, query key, sort
+ * order and page size) is then served from the buffer, provided that no entity
+ * of that type has been written in between.
+ * Disabled by default, and enabled via "datafi.prefetch.enabled=true".
+ * Requests made within a transaction always bypass the buffer, and prefetched
+ * results are detached - hence unsuited to lazy loading via open session in
+ * view.
+ */
+@Slf4j
+@Component
+public class PagePrefetcher {
+
+  @Getter
+  @Setter
+  @Value("#{new Boolean('${datafi.prefetch.enabled:false}')}")
+  private Boolean enabled;
+
+  @Setter
+  @Value("${datafi.prefetch.ttl-millis:10000}")
+  private long ttlMillis;
+
+  @Setter
+  @Value("${datafi.prefetch.max-entries:64}")
+  private int maxEntries;
+
+  @Setter
+  @Value("${datafi.prefetch.threads:2}")
+  private int threads;
+
+  @Autowired
+  private EntityWriteTracker entityWriteTracker;
+
+  private volatile ExecutorService executor;
+
+  private final LinkedHashMap<PageKey, PrefetchedPage> buffer = new LinkedHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder prefetches = new LongAdder();
+  private final LongAdder wasted = new LongAdder();
+
+  /**
+   * Serves the requested page of the given query, from the prefetch buffer if
+   * possible, and prefetches the page which follows it.
+   *
+   * @param queryKey identifies the query along with its arguments, and hence
+   * must implement equals and hashCode by value - or null if there's no such
+   * key, in which case the page is loaded directly.
+   */
+  public <R> Page<R> getPage(
+    Class<?> entityType,
+    Object queryKey,
+    Pageable pageable,
+    Function<Pageable, Page<R>> pageLoader
+  ) {
+    if (
+      !enabled ||
+      queryKey == null ||
+      pageable.isUnpaged() ||
+      TransactionSynchronizationManager.isActualTransactionActive()
+    ) return pageLoader.apply(pageable);
+    val key = new PageKey(entityType, queryKey, pageable);
+    Page<R> page = takeFromBuffer(key);
+    if (page != null) hits.increment(); else {
+      misses.increment();
+      page = pageLoader.apply(pageable);
+    }
+    if (page.hasNext()) prefetch(
+      new PageKey(entityType, queryKey, pageable.next()),
+      pageLoader
+    );
+    return page;
+  }
+
+  public PrefetchStatistics getStatistics() {
+    return new PrefetchStatistics(
+      hits.sum(),
+      misses.sum(),
+      prefetches.sum(),
+      wasted.sum()
+    );
+  }
+
+  @SuppressWarnings("unchecked")
+  private <R> Page<R> takeFromBuffer(PageKey key) {
+    final PrefetchedPage prefetched;
+    synchronized (buffer) {
+      prefetched = buffer.remove(key);
+    }
+    if (prefetched == null) return null;
+    if (!isValid(prefetched)) {
+      prefetched.page.cancel(true);
+      wasted.increment();
+      return null;
+    }
+    try {
+      //a prefetch which is still in flight is awaited rather than repeated
+      final Page<R> page = (Page<R>) prefetched.page.get();
+      //a write may have been flushed while the prefetch query was running
+      return isValid(prefetched) ? page : null;
+    } catch (ExecutionException e) {
+      log.debug("datafi.prefetch of {} failed: {}", key, e.getCause());
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  private <R> void prefetch(
+    PageKey key,
+    Function<Pageable, Page<R>> pageLoader
+  ) {
+    synchronized (buffer) {
+      if (buffer.containsKey(key)) return;
+    }
+    final long writeVersion = entityWriteTracker.versionOf(key.entityType);
+    final Future<Page<?>> page;
+    try {
+      page =
+        executor().<Page<?>>submit(() -> pageLoader.apply(key.pageable()));
+    } catch (RejectedExecutionException e) {
+      return;
+    }
+    prefetches.increment();
+    synchronized (buffer) {
+      evictExpired();
+      buffer.put(
+        key,
+        new PrefetchedPage(
+          key.entityType,
+          writeVersion,
+          System.currentTimeMillis() + ttlMillis,
+          page
+        )
+      );
+      if (buffer.size() > maxEntries) {
+        val eldest = buffer.entrySet().iterator();
+        eldest.next().getValue().page.cancel(true);
+        eldest.remove();
+        wasted.increment();
+      }
+    }
+  }
+
+  private void evictExpired() {
+    val entries = buffer.values().iterator();
+    while (entries.hasNext()) {
+      val prefetched = entries.next();
+      if (!isValid(prefetched)) {
+        prefetched.page.cancel(true);
+        entries.remove();
+        wasted.increment();
+      }
+    }
+  }
+
+  private boolean isValid(PrefetchedPage prefetched) {
+    return (
+      prefetched.expiresAt > System.currentTimeMillis() &&
+      prefetched.writeVersion ==
+      entityWriteTracker.versionOf(prefetched.entityType)
+    );
+  }
+
+  private ExecutorService executor() {
+    if (executor == null) {
+      synchronized (this) {
+        if (executor == null) {
+          val threadCount = new AtomicInteger();
+          executor =
+            new ThreadPoolExecutor(
+              threads,
+              threads,
+              60L,
+              TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(maxEntries),
+              runnable -> {
+                Thread thread = new Thread(
+                  runnable,
+                  "datafi-prefetch-" + threadCount.incrementAndGet()
+                );
+                thread.setDaemon(true);
+                return thread;
+              },
+              //prefetches are skipped once the queue is full
+              new ThreadPoolExecutor.AbortPolicy()
+            );
+        }
+      }
+    }
+    return executor;
+  }
+
+  @PreDestroy
+  private void shutdown() {
+    if (executor != null) executor.shutdownNow();
+  }
+
+  @EqualsAndHashCode
+  private static class PageKey {
+
+    private final Class<?> entityType;
+    private final Object queryKey;
+    private final Sort sort;
+    private final int pageSize;
+    private final int pageNumber;
+
+    PageKey(Class<?> entityType, Object queryKey, Pageable pageable) {
+      this.entityType = entityType;
+      this.queryKey = queryKey;
+      this.sort = pageable.getSort();
+      this.pageSize = pageable.getPageSize();
+      this.pageNumber = pageable.getPageNumber();
+    }
+
+    Pageable pageable() {
+      return PageRequest.of(pageNumber, pageSize, sort);
+    }
+
+    @Override
+    public String toString() {
+      return (
+        entityType.getSimpleName() +
+        " " +
+        queryKey +
+        " page " +
+        pageNumber +
+        " of size " +
+        pageSize +
+        " sorted by " +
+        sort
+      );
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class PrefetchedPage {
+
+    private final Class<?> entityType;
+    private final long writeVersion;
+    private final long expiresAt;
+    private final Future<Page<?>> page;
+  }
+}
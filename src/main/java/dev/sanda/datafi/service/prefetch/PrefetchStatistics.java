@@ -0,0 +1,44 @@
+package dev.sanda.datafi.service.prefetch;
+
+import lombok.Getter;
+
+/**
+ * A snapshot of the effectiveness of the {@link PagePrefetcher}. A hit is a
+ * page served from the prefetch buffer, a miss is a page which had to be
+ * queried on demand, and a wasted prefetch is one which expired, was evicted
+ * or was invalidated by a write before being requested.
+ */
+@Getter
+public class PrefetchStatistics {
+
+  private final long hits;
+  private final long misses;
+  private final long prefetches;
+  private final long wasted;
+
+  PrefetchStatistics(long hits, long misses, long prefetches, long wasted) {
+    this.hits = hits;
+    this.misses = misses;
+    this.prefetches = prefetches;
+    this.wasted = wasted;
+  }
+
+  public double getHitRatio() {
+    return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+  }
+
+  @Override
+  public String toString() {
+    return (
+      "{hits=" +
+      hits +
+      ", misses=" +
+      misses +
+      ", prefetches=" +
+      prefetches +
+      ", wasted=" +
+      wasted +
+      "}"
+    );
+  }
+}
@@ -0,0 +1,81 @@
+package dev.sanda.datafi.service.statistics;
+
+import dev.sanda.datafi.service.DataManager;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import lombok.val;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delimits each public DataManager call as an operation of the
+ * {@link OperationStatisticsCollector}, named after the called method and
+ * recording the DataManager's entity type - such that callers needn't delimit
+ * operations themselves, and that those they do delimit list the entity types
+ * involved. Only applied when statistics are enabled.
+ */
+@Component
+public class DataManagerStatisticsPostProcessor
+  extends AbstractAdvisingBeanPostProcessor {
+
+  @Value("#{new Boolean('${datafi.statistics.enabled:false}')}")
+  private Boolean enabled;
+
+  @Autowired
+  private ObjectProvider<OperationStatisticsCollector> statisticsCollector;
+
+  public DataManagerStatisticsPostProcessor() {
+    this.advisor =
+      new DefaultPointcutAdvisor(
+        new DataManagerOperations(),
+        (MethodInterceptor) this::invoke
+      );
+    setBeforeExistingAdvisors(true);
+  }
+
+  @Override
+  protected boolean isEligible(Object bean, String beanName) {
+    return enabled && super.isEligible(bean, beanName);
+  }
+
+  private Object invoke(MethodInvocation invocation) throws Throwable {
+    val collector = statisticsCollector.getObject();
+    collector.begin(
+      ((DataManager<?>) invocation.getThis()).getClazzSimpleName(),
+      invocation.getMethod().getName()
+    );
+    try {
+      return invocation.proceed();
+    } finally {
+      collector.end();
+    }
+  }
+
+  //public methods other than accessors
+  private static class DataManagerOperations
+    extends StaticMethodMatcherPointcut {
+
+    private DataManagerOperations() {
+      setClassFilter(new RootClassFilter(DataManager.class));
+    }
+
+    @Override
+    public boolean matches(Method method, Class<?> targetClass) {
+      final String name = method.getName();
+      return (
+        Modifier.isPublic(method.getModifiers()) &&
+        method.getDeclaringClass() != Object.class &&
+        !name.startsWith("set") &&
+        !(name.startsWith("get") && method.getParameterCount() == 0)
+      );
+    }
+  }
+}
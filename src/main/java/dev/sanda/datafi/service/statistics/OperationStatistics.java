@@ -0,0 +1,89 @@
+package dev.sanda.datafi.service.statistics;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import lombok.Getter;
+
+/**
+ * The number of SQL statements, entity loads and collection initializations
+ * which took place within a single (outermost) operation - including those of
+ * the tasks propagated to other threads, hence the synchronization.
+ */
+@Getter
+public class OperationStatistics {
+
+  private final String operation;
+  private final Set<String> entityTypes = new LinkedHashSet<>();
+  private int statementCount;
+  private int entityLoadCount;
+  private int collectionInitializationCount;
+  private int proxyInitializationCount;
+  private final Set<String> lazyAssociations = new LinkedHashSet<>();
+
+  public OperationStatistics(String operation) {
+    this.operation = operation;
+  }
+
+  synchronized void onEntityType(String entityType) {
+    entityTypes.add(entityType);
+  }
+
+  synchronized void onStatement() {
+    statementCount++;
+  }
+
+  synchronized void onEntityLoad() {
+    entityLoadCount++;
+  }
+
+  synchronized void onCollectionInitialization(String role) {
+    collectionInitializationCount++;
+    lazyAssociations.add(role);
+  }
+
+  synchronized void onProxyInitialization(String entityName) {
+    proxyInitializationCount++;
+    lazyAssociations.add(entityName);
+  }
+
+  /**
+   * @return the types of the entities whose DataManagers were called within
+   * the operation.
+   */
+  public synchronized Set<String> getEntityTypes() {
+    return Collections.unmodifiableSet(new LinkedHashSet<>(entityTypes));
+  }
+
+  /**
+   * @return the collection roles and proxied entity types which were lazily
+   * initialized within the operation, each of which implies an extra statement.
+   */
+  public synchronized Set<String> getLazyAssociations() {
+    return Collections.unmodifiableSet(new LinkedHashSet<>(lazyAssociations));
+  }
+
+  public synchronized int getLazyLoadCount() {
+    return collectionInitializationCount + proxyInitializationCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return (
+      "operation=" +
+      operation +
+      " entityTypes=" +
+      entityTypes +
+      " statements=" +
+      statementCount +
+      " entityLoads=" +
+      entityLoadCount +
+      " collectionInitializations=" +
+      collectionInitializationCount +
+      " proxyInitializations=" +
+      proxyInitializationCount +
+      " lazyAssociations=" +
+      lazyAssociations
+    );
+  }
+}
@@ -0,0 +1,203 @@
+package dev.sanda.datafi.service.statistics;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import javax.persistence.EntityManagerFactory;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements, entity loads and lazy initializations which take
+ * place within an operation - i.e. a unit of work delimited via
+ * {@link #begin(String)} and {@link #end()}, such as a web request along with
+ * the serialization of its response - and logs a structured warning whenever
+ * an operation exceeds the configured thresholds, which is typically the
+ * signature of an N+1 select pattern. Each DataManager call is delimited as an
+ * operation of its own - see {@link DataManagerStatisticsPostProcessor} - and
+ * hence rolls up into any operation begun around it.
+ * Disabled by default, and enabled via "datafi.statistics.enabled=true".
+ */
+@Slf4j
+@Component
+public class OperationStatisticsCollector
+  implements
+    StatementInspector,
+    HibernatePropertiesCustomizer,
+    SmartInitializingSingleton {
+
+  @Getter
+  @Setter
+  @Value("#{new Boolean('${datafi.statistics.enabled:false}')}")
+  private Boolean enabled;
+
+  @Setter
+  @Value("${datafi.statistics.statement-threshold:20}")
+  private int statementThreshold;
+
+  @Setter
+  @Value("${datafi.statistics.lazy-load-threshold:10}")
+  private int lazyLoadThreshold;
+
+  @Autowired
+  private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+  private final ThreadLocal<OperationStatistics> currentOperation = new ThreadLocal<>();
+  private final ThreadLocal<Integer> nestingDepth = new ThreadLocal<>();
+  private final ThreadLocal<OperationStatistics> lastOperation = new ThreadLocal<>();
+
+  /**
+   * Begins collecting the statistics of the given operation on the current
+   * thread. Must be matched by a call to {@link #end()}, typically within a
+   * finally block. Operations begun within an already begun one are accounted
+   * to the outermost one.
+   */
+  public void begin(String operation) {
+    begin(null, operation);
+  }
+
+  /**
+   * Same as {@link #begin(String)}, only also recording the (nullable) type of
+   * the entity the operation concerns.
+   */
+  public void begin(String entityType, String operation) {
+    if (!enabled) return;
+    final Integer depth = nestingDepth.get();
+    nestingDepth.set(depth == null ? 1 : depth + 1);
+    if (depth == null) currentOperation.set(new OperationStatistics(operation));
+    if (entityType != null) currentOperation.get().onEntityType(entityType);
+  }
+
+  /**
+   * Ends the operation most recently begun on the current thread.
+   *
+   * @return the statistics of the outermost operation once it has ended, or
+   * null otherwise.
+   */
+  public OperationStatistics end() {
+    final Integer depth = nestingDepth.get();
+    if (depth == null) return null;
+    if (depth > 1) {
+      nestingDepth.set(depth - 1);
+      return null;
+    }
+    nestingDepth.remove();
+    val statistics = currentOperation.get();
+    currentOperation.remove();
+    lastOperation.set(statistics);
+    if (
+      statistics.getStatementCount() > statementThreshold ||
+      statistics.getLazyLoadCount() > lazyLoadThreshold
+    ) log.warn("datafi.statistics threshold exceeded: {}", statistics);
+    return statistics;
+  }
+
+  /**
+   * @return the given task, such that whatever it does - e.g. on a pool
+   * thread - is accounted to the operation current on the calling thread.
+   */
+  public <V> Callable<V> propagate(Callable<V> task) {
+    val statistics = currentOperation.get();
+    if (statistics == null) return task;
+    return () -> {
+      final OperationStatistics previous = currentOperation.get();
+      final Integer previousDepth = nestingDepth.get();
+      currentOperation.set(statistics);
+      //such that operations begun by the task roll up into the propagated one
+      nestingDepth.set(1);
+      try {
+        return task.call();
+      } finally {
+        currentOperation.remove();
+        nestingDepth.remove();
+        if (previous != null) currentOperation.set(previous);
+        if (previousDepth != null) nestingDepth.set(previousDepth);
+      }
+    };
+  }
+
+  /**
+   * @return the statistics of the last operation which ended on the current
+   * thread, or null if there is none.
+   */
+  public OperationStatistics getLastOperationStatistics() {
+    return lastOperation.get();
+  }
+
+  public void clear() {
+    lastOperation.remove();
+  }
+
+  private void record(Consumer<OperationStatistics> event) {
+    val statistics = currentOperation.get();
+    if (statistics != null) event.accept(statistics);
+  }
+
+  @Override
+  public String inspect(String sql) {
+    record(OperationStatistics::onStatement);
+    return sql;
+  }
+
+  @Override
+  public void customize(Map<String, Object> hibernateProperties) {
+    if (!enabled) return;
+    if (
+      hibernateProperties.putIfAbsent(AvailableSettings.STATEMENT_INSPECTOR, this) !=
+      null
+    ) log.warn(
+      "A statement inspector is already configured, datafi statistics will not include statement counts"
+    );
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    if (!enabled) return;
+    val factory = entityManagerFactory.getIfAvailable();
+    if (factory == null) return;
+    val registry = factory
+      .unwrap(SessionFactoryImplementor.class)
+      .getServiceRegistry()
+      .getService(EventListenerRegistry.class);
+    registry.appendListeners(
+      EventType.POST_LOAD,
+      (PostLoadEventListener) event -> record(OperationStatistics::onEntityLoad)
+    );
+    registry.appendListeners(
+      EventType.INIT_COLLECTION,
+      (InitializeCollectionEventListener) event ->
+        record(
+          statistics ->
+            statistics.onCollectionInitialization(
+              event.getCollection().getRole()
+            )
+        )
+    );
+    //an immediate load is how hibernate initializes an uninitialized proxy
+    registry.appendListeners(
+      EventType.LOAD,
+      (LoadEventListener) (event, loadType) -> {
+        if (loadType == LoadEventListener.IMMEDIATE_LOAD) record(
+          statistics ->
+            statistics.onProxyInitialization(event.getEntityClassName())
+        );
+      }
+    );
+  }
+}